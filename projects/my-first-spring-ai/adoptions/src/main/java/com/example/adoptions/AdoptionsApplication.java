@@ -1,17 +1,39 @@
 package com.example.adoptions;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @SpringBootApplication
+@EnableScheduling
 public class AdoptionsApplication {
 
     public static void main(String[] args) {
@@ -29,13 +51,16 @@ record Dog(@Id int id, String name, String owner, String description,
            java.time.LocalDateTime createdAt, java.time.LocalDateTime updatedAt) {
 }
 
-interface DogRepository extends ListCrudRepository<Dog, Integer> {
+interface DogRepository extends ListCrudRepository<Dog, Integer>, DogListing {
+
+    java.util.List<Dog> findByUpdatedAtAfter(java.time.LocalDateTime updatedAt);
 }
 
 record DogAdoptionSuggestion(int id, String name, String description) {}
 
 // MCP function calling records
-record ScheduleRequest(int dogId, String dogName) {}
+// location is the shelter location of the dog; when left out it is looked up from the dog
+record ScheduleRequest(int dogId, String dogName, String location) {}
 record ScheduleResponse(boolean success, String appointmentTime, String message) {}
 
 @Controller
@@ -44,44 +69,65 @@ class AdoptionsController {
 
     private final ChatClient ai;
     private final DogRepository repository;
-    private final org.springframework.jdbc.core.simple.JdbcClient db;
-    private final org.springframework.ai.vectorstore.VectorStore vectorStore;
+    private final DogVectorIndexer indexer;
+    private final DogRetriever retriever;
+    private final DogHybridSearch search;
+    private final DogSearchBenchmark searchBenchmark;
+    private final VectorStoreWarmup warmup;
+    private final AssistantResponseCache responseCache;
+    private final DogCatalogRenderer catalogRenderer;
+    private final SchedulerClient schedulerClient;
+    private final SchedulerMcpSession schedulerTools;
+    private final ConversationMemory conversationMemory;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Timer streamFirstTokenTimer;
+    private final Timer streamDurationTimer;
     
     // Inject scheduler URL from application.properties
     @org.springframework.beans.factory.annotation.Value("${scheduler.url:http://localhost:8081}")
     private String schedulerUrl;
 
+    // "hybrid" sends the top-k dogs from full-text and vector search, "retrieval" the top-k from
+    // vector search only, "full" the whole catalog
+    @org.springframework.beans.factory.annotation.Value("${adoptions.assistant.context-mode:hybrid}")
+    private String contextMode;
+
+    @org.springframework.beans.factory.annotation.Value("${adoptions.assistant.retrieval.top-k:5}")
+    private int contextDogs;
+
     AdoptionsController(
-            org.springframework.jdbc.core.simple.JdbcClient db,
             DogRepository repository,
-            org.springframework.ai.vectorstore.VectorStore vectorStore,
+            DogVectorIndexer indexer,
+            DogRetriever retriever,
+            DogHybridSearch search,
+            DogSearchBenchmark searchBenchmark,
+            VectorStoreWarmup warmup,
+            AssistantResponseCache responseCache,
+            DogCatalogRenderer catalogRenderer,
+            SchedulerClient schedulerClient,
+            SchedulerMcpSession schedulerTools,
+            ConversationMemory conversationMemory,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
             ChatClient.Builder aiBuilder
     ) {
         this.repository = repository;
-        this.db = db;
-        this.vectorStore = vectorStore;
-
-        // Load data into VectorStore
-        var count = db
-                .sql("select count(*) from vector_store")
-                .query(Integer.class)
-                .single();
-        if (count == 0) {
-            repository.findAll().forEach(dog -> {
-                var dogInfo = String.format(
-                    "id: %s, name: %s, breed: %s, age: %s years, size: %s, energy: %s, " +
-                    "good with kids: %s, good with cats: %s, good with dogs: %s, " +
-                    "adoption fee: $%s, location: %s, description: %s",
-                    dog.id(), dog.name(), dog.breed(), dog.ageYears(), dog.size(), dog.energyLevel(),
-                    dog.goodWithKids() ? "Yes" : "No",
-                    dog.goodWithCats() ? "Yes" : "No", 
-                    dog.goodWithDogs() ? "Yes" : "No",
-                    dog.adoptionFee(), dog.location(), dog.description()
-                );
-                var dogDocument = new org.springframework.ai.document.Document(dogInfo);
-                vectorStore.add(java.util.List.of(dogDocument));
-            });
-        }
+        this.indexer = indexer;
+        this.retriever = retriever;
+        this.search = search;
+        this.searchBenchmark = searchBenchmark;
+        this.warmup = warmup;
+        this.responseCache = responseCache;
+        this.catalogRenderer = catalogRenderer;
+        this.schedulerClient = schedulerClient;
+        this.schedulerTools = schedulerTools;
+        this.conversationMemory = conversationMemory;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        // The vector store is brought up to date in the background by VectorStoreWarmup, so the
+        // constructor no longer waits for the embedding API
 
         // System prompt for adoption assistance
         var system = """
@@ -93,58 +139,66 @@ Information about the dogs available will be presented below. If there is no inf
 
 When a user expresses interest in scheduling an appointment for a specific dog, you MUST automatically schedule the appointment for them using the scheduleAppointment function. Call this function with the dog's ID and name to book the appointment. DO NOT just tell them to contact the scheduler - always use the scheduleAppointment function when requested.
 
+If the user wants to meet several dogs, book them all with a single call to the scheduleAppointments function instead of calling scheduleAppointment once per dog. It books every appointment or none of them.
+
 Be helpful, friendly, and provide detailed information about each dog's characteristics, needs, and suitability for different families.
+
+{context}
                 """;
 
-        // Build ChatClient with system prompt. 
+        // Build ChatClient with system prompt and the scheduler's MCP tools (scheduleAppointment,
+        // scheduleAppointments), so the model can book appointments from both the blocking and the
+        // streaming endpoint.
+        // The tool list is read from the shared MCP session on every request.
+        // The dog context goes into the system prompt, so conversation memory only keeps what the
+        // user actually said; earlier turns are replayed per user from ConversationMemory.
         this.ai = aiBuilder
                 .defaultSystem(system)
+                .defaultToolCallbacks(schedulerTools)
+                .defaultAdvisors(MessageChatMemoryAdvisor.builder(conversationMemory).build())
                 .build();
+
+        this.streamFirstTokenTimer = Timer.builder("adoptions.assistant.stream.first-token")
+                .description("Time from request to the first streamed token")
+                .register(meterRegistry);
+        this.streamDurationTimer = Timer.builder("adoptions.assistant.stream.duration")
+                .description("Time from request until the stream completes")
+                .register(meterRegistry);
     }
 
     @GetMapping("/{user}/assistant")
     String inquire(@PathVariable String user, @RequestParam String question) {
         System.out.printf("🤖 AI ASSISTANT REQUEST: user='%s', question='%s'%n", user, question);
         
-        // Get all dogs from database
-        var allDogs = repository.findAll();
-        System.out.println("🐕 Found " + allDogs.size() + " dogs in database");
-        
-        // Build context from all dogs
-        var context = new StringBuilder();
-        context.append("Here are all the dogs available for adoption at Pooch Palace:\n\n");
-        
-        for (var dog : allDogs) {
-            context.append(String.format(
-                "• Dog ID: %d - %s (%s) - %s, %d years old, %s size, %s energy level. " +
-                "Good with kids: %s, cats: %s, dogs: %s. " +
-                "Adoption fee: $%.2f. Location: %s. %s\n",
-                dog.id(), dog.name(), dog.breed(), dog.description(), dog.ageYears(), dog.size(), dog.energyLevel(),
-                dog.goodWithKids() ? "Yes" : "No",
-                dog.goodWithCats() ? "Yes" : "No", 
-                dog.goodWithDogs() ? "Yes" : "No",
-                dog.adoptionFee(), dog.location(), dog.description()
-            ));
+        // A follow-up depends on the earlier turns, so only a user's first question may be answered
+        // from the semantic cache
+        if (conversationMemory.hasHistory(user)) {
+            return answer(user, question);
         }
-        
-        // Create enhanced prompt with context
-        var promptWithContext = String.format(
-            "%s\n\nUser question: %s", 
-            context.toString(), question
-        );
-        
-        System.out.println("📤 Sending prompt to OpenAI (length: " + promptWithContext.length() + " chars)");
-        System.out.println("🔍 Question analysis: " + (question.toLowerCase().contains("schedule") || 
-                                                        question.toLowerCase().contains("appointment") ? 
-                                                        "Contains scheduling keywords - may trigger MCP function" : 
-                                                        "No scheduling keywords detected"));
+        var computed = new AtomicBoolean();
+        var response = responseCache.getOrCompute(question, () -> {
+            computed.set(true);
+            return answer(user, question);
+        });
+        if (!computed.get()) {
+            // The memory advisor did not see this turn, record it so follow-ups have the context
+            conversationMemory.add(user, List.of(new UserMessage(question), new AssistantMessage(response)));
+        }
+        return response;
+    }
+
+    private String answer(String user, String question) {
+        var context = buildContext(question);
         
         long startTime = System.currentTimeMillis();
         
         // Reverted to simple call, assuming String response for now
         String response = ai
                 .prompt()
-                .user(promptWithContext)
+                .system(system -> system.param("context", context))
+                .user(question)
+                .advisors(advisors -> advisors.param(ChatMemory.CONVERSATION_ID, user))
+                .toolContext(Map.of(SchedulerMcpSession.USER_CONTEXT_KEY, user))
                 .call()
                 .content(); // Assuming content() returns String when no functions are explicitly handled
         long endTime = System.currentTimeMillis();
@@ -154,21 +208,205 @@ Be helpful, friendly, and provide detailed information about each dog's characte
         
         return response;
     }
+
+    @GetMapping(value = "/{user}/assistant/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<String> inquireStream(@PathVariable String user, @RequestParam String question) {
+        System.out.printf("🤖 AI ASSISTANT STREAM REQUEST: user='%s', question='%s'%n", user, question);
+        
+        long startTime = System.nanoTime();
+        var context = buildContext(question);
+        var firstToken = new AtomicBoolean();
+
+        // Tool calls (scheduleAppointment) are executed by the ChatClient between streamed chunks
+        return ai
+                .prompt()
+                .system(system -> system.param("context", context))
+                .user(question)
+                .advisors(advisors -> advisors.param(ChatMemory.CONVERSATION_ID, user))
+                .toolContext(Map.of(SchedulerMcpSession.USER_CONTEXT_KEY, user))
+                .stream()
+                .content()
+                .doOnNext(token -> {
+                    if (firstToken.compareAndSet(false, true)) {
+                        long elapsed = System.nanoTime() - startTime;
+                        streamFirstTokenTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                        System.out.println("⚡ First token after " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+                    }
+                })
+                .doFinally(signal -> {
+                    long elapsed = System.nanoTime() - startTime;
+                    streamDurationTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    System.out.println("📥 Stream " + signal + " after " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+                });
+    }
+
+    /**
+     * Builds the dog context for the system prompt of both the blocking and the streaming
+     * endpoint.
+     */
+    private String buildContext(String question) {
+        var mode = contextMode.toLowerCase(java.util.Locale.ROOT);
+        if (!mode.equals("full") && !warmup.isReady()) {
+            mode = "fallback";
+        }
+        var context = switch (mode) {
+            case "full" -> fullCatalogContext();
+            case "fallback" -> warmingUpContext(question);
+            case "retrieval" -> retrievedContext(question);
+            default -> hybridContext(question);
+        };
+        
+        int promptLength = context.length() + question.length();
+        DistributionSummary.builder("adoptions.assistant.prompt.size")
+                .description("Size of the dog context and question sent to the model, without earlier turns")
+                .baseUnit("chars")
+                .tag("mode", switch (mode) {
+                    case "full", "retrieval", "fallback" -> mode;
+                    default -> "hybrid";
+                })
+                .register(meterRegistry)
+                .record(promptLength);
+        System.out.println("📤 Sending prompt to OpenAI (length: " + promptLength + " chars)");
+        System.out.println("🔍 Question analysis: " + (AssistantResponseCache.isSchedulingIntent(question) ?
+                                                        "Contains scheduling keywords - may trigger MCP function" : 
+                                                        "No scheduling keywords detected"));
+        
+        return context;
+    }
+
+    private String retrievedContext(String question) {
+        long startTime = System.currentTimeMillis();
+        var documents = retriever.retrieve(question);
+        System.out.println("🔎 Retrieved " + documents.size() + " relevant dogs from vector store in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+
+        var context = new StringBuilder();
+        context.append("Here are the dogs available for adoption at Pooch Palace that best match the question:\n\n");
+        for (var document : documents) {
+            context.append("• ").append(document.getText()).append("\n");
+        }
+        return context.toString();
+    }
+
+    private String hybridContext(String question) {
+        long startTime = System.currentTimeMillis();
+        var hits = search.search(question, contextDogs);
+        System.out.println("🔎 Found " + hits.size() + " relevant dogs with hybrid search in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+
+        return searchContext(hits);
+    }
+
+    private static String searchContext(java.util.List<DogHybridSearch.Hit> hits) {
+        var context = new StringBuilder();
+        context.append("Here are the dogs available for adoption at Pooch Palace that best match the question:\n\n");
+        for (var hit : hits) {
+            context.append("• ").append(DogCatalogRenderer.describe(hit.dog())).append("\n");
+        }
+        return context.toString();
+    }
+
+    /**
+     * Context while the vector store is still being indexed: full-text matches only, or the
+     * catalog snapshot when the question matches no dog text.
+     */
+    private String warmingUpContext(String question) {
+        var hits = search.search(question, contextDogs, DogHybridSearch.Method.LEXICAL);
+        System.out.println("⏳ Vector store still warming up, using " + (hits.isEmpty()
+                ? "the catalog snapshot" : hits.size() + " full-text matches"));
+        return hits.isEmpty() ? fullCatalogContext() : searchContext(hits);
+    }
+
+    private String fullCatalogContext() {
+        // Pre-rendered snapshot, refreshed in the background only when the dog table changes
+        var catalog = catalogRenderer.snapshot();
+        System.out.println("🐕 Using catalog snapshot with " + catalog.dogs() + " dogs");
+        return catalog.text();
+    }
     
+    /**
+     * One page of dogs, {@code limit} at a time after the dog id {@code after}; the response
+     * carries the {@code after} of the next page. {@code fields} selects which dog fields are
+     * read and returned.
+     */
     @GetMapping("/dogs")
-    java.util.List<Dog> listAllDogs() {
-        return repository.findAll();
+    DogListing.Page listDogs(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String breed,
+            @RequestParam(required = false) String size,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) java.math.BigDecimal minFee,
+            @RequestParam(required = false) java.math.BigDecimal maxFee,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        try {
+            var filter = new DogListing.Filter(after, breed, size, location, minFee, maxFee);
+            return repository.findPage(filter, fields, Math.max(1, Math.min(limit, 500)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Every matching dog as one JSON array, written while the rows are read from a cursor, so
+     * memory use does not grow with the catalog.
+     */
+    @GetMapping(value = "/dogs", params = "stream=true")
+    ResponseEntity<StreamingResponseBody> streamDogs(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) String breed,
+            @RequestParam(required = false) String size,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) java.math.BigDecimal minFee,
+            @RequestParam(required = false) java.math.BigDecimal maxFee,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        DogListing.Filter filter;
+        try {
+            // Rejects unknown sizes and fields before the response is committed
+            filter = new DogListing.Filter(after, breed, size, location, minFee, maxFee);
+            DogListing.columns(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        var writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (var json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                repository.streamAll(filter, fields, dog -> {
+                    try {
+                        writer.writeValue(json, dog);
+                    } catch (java.io.IOException e) {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
+    @GetMapping("/dogs/search")
+    java.util.List<DogHybridSearch.Hit> searchDogs(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "hybrid") String method
+    ) {
+        DogHybridSearch.Method searchMethod;
+        try {
+            searchMethod = DogHybridSearch.Method.of(method);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return search.search(q, Math.max(1, Math.min(limit, 50)), searchMethod);
     }
     
     @GetMapping("/dogs/count")
     String getDogCount() {
         try {
-            var dogCount = repository.count();
-            var vectorCount = db
-                    .sql("select count(*) from vector_store")
-                    .query(Integer.class)
-                    .single();
-            return String.format("Dogs in database: %d, Documents in vector store: %d", dogCount, vectorCount);
+            var counts = repository.counts();
+            return String.format("Dogs in database: %d, Documents in vector store: %d", counts.dogs(), counts.documents());
         } catch (Exception e) {
             return "Error counting: " + e.getMessage();
         }
@@ -190,22 +428,42 @@ Be helpful, friendly, and provide detailed information about each dog's characte
         return sb.toString();
     }
     
+    @org.springframework.web.bind.annotation.PostMapping("/admin/reindex")
+    String reindex() {
+        var result = indexer.sync();
+        return String.format("Re-indexed %d dogs (%d failed), removed %d deleted dogs in %dms (high-water mark: %s)",
+                result.upserted(), result.failed(), result.deleted(), result.durationMs(), result.highWaterMark());
+    }
+    
+    @GetMapping("/admin/search-benchmark")
+    String searchBenchmark(
+            @RequestParam(defaultValue = "5") int k,
+            @RequestParam(defaultValue = "5") int iterations
+    ) {
+        return searchBenchmark.run(Math.max(1, k), Math.max(1, iterations)).toString();
+    }
+    
+    /**
+     * The MCP session to the scheduler and the tools it offers the assistant, as listed by the
+     * scheduler with their input schemas.
+     */
     @GetMapping("/admin/mcp-config")
     String mcpConfig() {
-        // Use injected schedulerUrl field instead of System.getProperty
         var sb = new StringBuilder();
         sb.append("MCP Configuration Status:\n");
         sb.append("=========================\n");
+        sb.append("MCP Session: ").append(schedulerTools.url())
+                .append(schedulerTools.isConnected() ? " (connected)" : " (disconnected, reconnecting)").append("\n");
+        var tools = schedulerTools.getToolCallbacks();
+        sb.append("MCP Tools: ").append(tools.length == 0 ? "none listed yet" : tools.length).append("\n");
+        for (var tool : tools) {
+            var definition = tool.getToolDefinition();
+            sb.append("\n- ").append(definition.name()).append(": ").append(definition.description()).append("\n");
+            sb.append("  Input schema: ").append(definition.inputSchema()).append("\n");
+        }
+        sb.append("\nREST booking (bypasses the assistant):\n");
         sb.append("Scheduler URL: ").append(schedulerUrl).append("\n");
-        sb.append("Connection Type: ").append(schedulerUrl.contains("devtunnels") ? "Dev Tunnel (Public)" : 
-                                              schedulerUrl.contains("ngrok") ? "NGROK (Public)" : "Localhost (Local)").append("\n");
-        sb.append("MCP Function: scheduleAppointment - AVAILABLE VIA REST\n");
-        sb.append("\nFunction Details:\n");
-        sb.append("- Purpose: Schedule dog adoption appointments\n");
-        sb.append("- Input: dogId (int), dogName (string)\n");
-        sb.append("- Output: success, appointmentTime, message\n");
-        sb.append("\nUsage:\n");
-        sb.append("POST /schedule-appointment with dogId and dogName\n");
+        sb.append("POST /schedule-appointment with dogId, dogName and an optional location (the dog's shelter location when left out)\n");
         sb.append("Example: curl -X POST /schedule-appointment -d '{\"dogId\":1,\"dogName\":\"Buddy\"}'\n");
         return sb.toString();
     }
@@ -213,23 +471,15 @@ Be helpful, friendly, and provide detailed information about each dog's characte
     @org.springframework.web.bind.annotation.PostMapping("/schedule-appointment")
     ScheduleResponse scheduleAppointment(@org.springframework.web.bind.annotation.RequestBody ScheduleRequest request) {
         try {
-            var restTemplate = new org.springframework.web.client.RestTemplate();
-            var requestBody = java.util.Map.of(
-                "dogId", request.dogId(),
-                "dogName", request.dogName()
-            );
-            
-            @SuppressWarnings("unchecked")
-            var response = restTemplate.postForObject(
-                schedulerUrl + "/schedule", 
-                requestBody, 
-                java.util.Map.class
-            );
+            var location = request.location() != null && !request.location().isBlank()
+                    ? request.location()
+                    : repository.findById(request.dogId()).map(Dog::location).orElse(null);
+            var response = schedulerClient.schedule(request.dogId(), request.dogName(), location);
             
             return new ScheduleResponse(
-                (Boolean) response.get("success"),
-                (String) response.get("appointmentTime"),
-                (String) response.get("message")
+                Boolean.TRUE.equals(response.success()),
+                response.appointmentTime(),
+                response.message()
             );
         } catch (Exception e) {
             return new ScheduleResponse(false, null, "Failed to schedule appointment: " + e.getMessage());
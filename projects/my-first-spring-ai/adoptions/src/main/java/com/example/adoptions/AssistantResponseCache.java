@@ -0,0 +1,215 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Semantic cache in front of the assistant. A question is embedded and compared with the
+ * questions answered before; if one is similar enough, its answer is returned without calling
+ * the model. Similar wording is not enough: the hard constraints {@link DogQueryFilters} finds in
+ * both questions (size, city, fee, ...) must be equal too, so "small dogs in Tokyo" is never
+ * answered with the cached answer for "small dogs in Paris". Entries expire after a TTL, the least
+ * recently used entry is evicted once the cache is full, and every change to the dog table clears
+ * it. Questions that look like a scheduling request always go to the model, since they must
+ * trigger a tool call.
+ */
+@Component
+class AssistantResponseCache {
+
+    private static final Pattern SCHEDULING_INTENT = Pattern.compile(
+            "\\b(schedul\\w*|appointment\\w*|book\\w*|reserve\\w*|visit\\w*|meet)\\b");
+
+    private record Entry(String question, Filter.Expression filter, float[] embedding, String answer,
+                         long answerNanos, long createdAt) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every catalog change, so an answer computed against the old catalog is not stored
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+    private final Timer latencySaved;
+
+    @Autowired
+    AssistantResponseCache(
+            EmbeddingModel embeddingModel,
+            MeterRegistry meterRegistry,
+            @Value("${adoptions.assistant.cache.enabled:true}") boolean enabled,
+            @Value("${adoptions.assistant.cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${adoptions.assistant.cache.ttl:PT30M}") Duration ttl,
+            @Value("${adoptions.assistant.cache.max-entries:500}") int maxEntries
+    ) {
+        this(embeddingModel, meterRegistry, enabled, similarityThreshold, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    AssistantResponseCache(EmbeddingModel embeddingModel, MeterRegistry meterRegistry, boolean enabled,
+                           double similarityThreshold, Duration ttl, int maxEntries, Clock clock) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.bypassed = counter(meterRegistry, "bypass");
+        this.latencySaved = Timer.builder("adoptions.assistant.cache.latency.saved")
+                .description("Model latency avoided by answering from the semantic cache")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.assistant.cache.size", this, AssistantResponseCache::size)
+                .description("Answers held in the semantic cache")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.assistant.cache.hit.ratio", this, AssistantResponseCache::hitRatio)
+                .description("Share of cacheable questions answered from the semantic cache")
+                .register(meterRegistry);
+    }
+
+    static boolean isSchedulingIntent(String question) {
+        return SCHEDULING_INTENT.matcher(question.toLowerCase(Locale.ROOT)).find();
+    }
+
+    String getOrCompute(String question, Supplier<String> answer) {
+        if (!enabled || isSchedulingIntent(question)) {
+            bypassed.increment();
+            return answer.get();
+        }
+
+        long lookupStart = System.nanoTime();
+        var filter = DogQueryFilters.fromQuestion(question);
+        var embedding = embeddingModel.embed(question);
+        var cached = findSimilar(filter, embedding);
+        if (cached != null) {
+            hits.increment();
+            long saved = cached.answerNanos() - (System.nanoTime() - lookupStart);
+            if (saved > 0) {
+                latencySaved.record(Duration.ofNanos(saved));
+            }
+            System.out.println("💾 Semantic cache hit for '" + question + "' (cached question: '" + cached.question() + "')");
+            return cached.answer();
+        }
+
+        misses.increment();
+        long startGeneration = currentGeneration();
+        long answerStart = System.nanoTime();
+        var response = answer.get();
+        put(new Entry(question, filter, embedding, response, System.nanoTime() - answerStart, clock.millis()),
+                startGeneration);
+        return response;
+    }
+
+    @EventListener
+    void onCatalogChanged(DogCatalogChangedEvent event) {
+        synchronized (entries) {
+            generation++;
+            if (!entries.isEmpty()) {
+                System.out.println("🧽 Dog catalog changed, dropping " + entries.size() + " cached answers");
+                entries.clear();
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private Entry findSimilar(Filter.Expression filter, float[] embedding) {
+        long expiredBefore = clock.millis() - ttl.toMillis();
+        synchronized (entries) {
+            Entry best = null;
+            double bestScore = similarityThreshold;
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                var entry = it.next();
+                if (entry.createdAt() < expiredBefore) {
+                    it.remove();
+                    continue;
+                }
+                if (!Objects.equals(filter, entry.filter())) {
+                    continue;
+                }
+                double score = cosineSimilarity(embedding, entry.embedding());
+                if (score >= bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+            if (best != null) {
+                // Touch the entry so LRU eviction keeps it
+                entries.get(best.question());
+            }
+            return best;
+        }
+    }
+
+    private long currentGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    private void put(Entry entry, long expectedGeneration) {
+        synchronized (entries) {
+            if (generation != expectedGeneration) {
+                return;
+            }
+            entries.put(entry.question(), entry);
+            if (entries.size() > maxEntries) {
+                var eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static double cosineSimilarity(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("adoptions.assistant.cache")
+                .description("Assistant questions by semantic cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
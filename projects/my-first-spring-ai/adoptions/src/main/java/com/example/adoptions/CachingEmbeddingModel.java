@@ -0,0 +1,128 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+
+/**
+ * {@link EmbeddingModel} decorator that only calls the delegate for texts it has not embedded
+ * before. Vectors are keyed by SHA-256 of the model name, the requested dimensions and the text,
+ * and kept in an {@link EmbeddingCacheStore}, so re-indexing unchanged dogs costs no network call.
+ * <p>
+ * Only batch requests, which is how the vector store embeds documents, are cached. Single texts
+ * ({@link #embed(String)}: search queries and assistant questions) go straight to the delegate,
+ * so free text never grows the store and request threads never wait for its writes.
+ */
+class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCacheStore store;
+    private final String defaultModel;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+
+    CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCacheStore store, String defaultModel,
+                          MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.store = store;
+        this.defaultModel = defaultModel;
+        this.hits = Counter.builder("adoptions.embedding.cache")
+                .description("Embedding lookups served from the local cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("adoptions.embedding.cache")
+                .description("Embedding lookups that had to call the embedding model")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("adoptions.embedding.cache")
+                .description("Single-text embeddings (queries) that skip the cache")
+                .tag("result", "bypass")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.embedding.cache.size", store, EmbeddingCacheStore::size)
+                .description("Vectors held in the local embedding cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        var texts = request.getInstructions();
+        var keys = new ArrayList<byte[]>(texts.size());
+        var vectors = new float[texts.size()][];
+        var missing = new ArrayList<Integer>();
+        for (int i = 0; i < texts.size(); i++) {
+            var key = key(request, texts.get(i));
+            keys.add(key);
+            vectors[i] = store.get(key);
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        hits.increment(texts.size() - missing.size());
+        misses.increment(missing.size());
+
+        var metadata = new EmbeddingResponseMetadata();
+        if (!missing.isEmpty()) {
+            var missingTexts = missing.stream().map(texts::get).toList();
+            var response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            var results = response.getResults();
+            for (int j = 0; j < results.size(); j++) {
+                int i = missing.get(j);
+                vectors[i] = results.get(j).getOutput();
+                store.put(keys.get(i), vectors[i]);
+            }
+            metadata = response.getMetadata();
+        }
+
+        var embeddings = new ArrayList<Embedding>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        bypassed.increment();
+        return delegate.embed(text);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private byte[] key(EmbeddingRequest request, String text) {
+        var options = request.getOptions();
+        var model = options != null && options.getModel() != null ? options.getModel() : defaultModel;
+        var dimensions = options != null && options.getDimensions() != null ? options.getDimensions() : 0;
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(dimensions).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
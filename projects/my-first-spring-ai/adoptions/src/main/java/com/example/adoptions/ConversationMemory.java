@@ -0,0 +1,398 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user conversation memory for the assistant, keyed by conversation id (the user).
+ * <p>
+ * Active conversations live in memory, so a turn never waits for the database: a conversation is
+ * read from the {@link ChatMemoryRepository} once, when it is first used or after it went idle,
+ * and changes are written back in batches by a background flush. A conversation hands the model
+ * at most {@code maxMessages} recent messages. Once it grows past that, the older half is folded
+ * into a running summary in the background, and the summary is sent ahead of the recent messages;
+ * until the summary is ready the window alone keeps the prompt bounded. The summary is stored as
+ * the first, system message of the conversation.
+ */
+@Component
+class ConversationMemory implements ChatMemory, DisposableBean {
+
+    static final String SUMMARY_PREFIX = "Summary of the earlier conversation with this user: ";
+
+    private static final String SUMMARIZER_SYSTEM = """
+            You condense conversations between a dog adoption assistant and a user. Keep what the
+            user told about themselves and their home, the dogs discussed by name and id, and any
+            appointments booked or requested. Leave out greetings and dog descriptions the assistant
+            can look up again. Answer with the summary only, at most 120 words.
+            """;
+
+    /**
+     * Folds turns into the previous summary, which may be {@code null}.
+     */
+    @FunctionalInterface
+    interface Summarizer {
+
+        String summarize(String previousSummary, List<Message> turns);
+    }
+
+    private static final class Conversation {
+
+        String summary;
+        final List<Message> messages = new ArrayList<>();
+        boolean compacting;
+        boolean flushing;
+        // Set once dropped from memory; a caller still holding it looks the conversation up again
+        boolean evicted;
+        long lastAccess = System.nanoTime();
+    }
+
+    private final ChatMemoryRepository repository;
+    private final Summarizer summarizer;
+    private final int maxMessages;
+    private final int maxSessions;
+    private final Duration idleTtl;
+    private final int flushBatchSize;
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "conversation-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hotLoads;
+    private final Counter repositoryLoads;
+    private final Counter flushed;
+    private final Counter flushFailures;
+    private final Counter compactions;
+    private final Counter compactionFailures;
+    private final Timer flushTimer;
+
+    @Autowired
+    ConversationMemory(
+            ChatMemoryRepository repository,
+            ChatClient.Builder aiBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${adoptions.memory.max-messages:20}") int maxMessages,
+            @Value("${adoptions.memory.max-sessions:1000}") int maxSessions,
+            @Value("${adoptions.memory.idle-ttl:PT30M}") Duration idleTtl,
+            @Value("${adoptions.memory.flush-batch-size:50}") int flushBatchSize
+    ) {
+        this(repository, chatSummarizer(aiBuilder.defaultSystem(SUMMARIZER_SYSTEM).build()), meterRegistry,
+                maxMessages, maxSessions, idleTtl, flushBatchSize);
+    }
+
+    ConversationMemory(ChatMemoryRepository repository, Summarizer summarizer, MeterRegistry meterRegistry,
+                       int maxMessages, int maxSessions, Duration idleTtl, int flushBatchSize) {
+        if (maxMessages < 2) {
+            throw new IllegalArgumentException("adoptions.memory.max-messages must be at least 2");
+        }
+        this.repository = repository;
+        this.summarizer = summarizer;
+        this.maxMessages = maxMessages;
+        this.maxSessions = maxSessions;
+        this.idleTtl = idleTtl;
+        this.flushBatchSize = flushBatchSize;
+        this.hotLoads = loads(meterRegistry, "memory");
+        this.repositoryLoads = loads(meterRegistry, "repository");
+        this.flushed = Counter.builder("adoptions.memory.flush.conversations")
+                .description("Conversations written back to the chat memory repository")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("adoptions.memory.flush.failures")
+                .description("Conversations whose write-back failed and will be retried")
+                .register(meterRegistry);
+        this.compactions = Counter.builder("adoptions.memory.compactions")
+                .description("Older turns folded into a conversation summary")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.compactionFailures = Counter.builder("adoptions.memory.compactions")
+                .description("Older turns folded into a conversation summary")
+                .tag("result", "error")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("adoptions.memory.flush.duration")
+                .description("Time to write a batch of conversations back to the repository")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.memory.sessions", conversations, Map::size)
+                .description("Conversations held in memory")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.memory.pending", dirty, Set::size)
+                .description("Conversations with changes not yet written back")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        while (true) {
+            var conversation = conversation(conversationId);
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    continue;
+                }
+                conversation.messages.addAll(messages);
+                conversation.lastAccess = System.nanoTime();
+                dirty.add(conversationId);
+                if (conversation.messages.size() > maxMessages && !conversation.compacting) {
+                    conversation.compacting = true;
+                    compactor.execute(() -> compact(conversationId, conversation));
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        while (true) {
+            var conversation = conversation(conversationId);
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    continue;
+                }
+                conversation.lastAccess = System.nanoTime();
+                return window(conversation);
+            }
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        conversations.remove(conversationId);
+        dirty.remove(conversationId);
+        repository.deleteByConversationId(conversationId);
+    }
+
+    /**
+     * Whether the user has talked to the assistant before.
+     */
+    boolean hasHistory(String conversationId) {
+        return !get(conversationId).isEmpty();
+    }
+
+    /**
+     * Writes changed conversations back, at most {@code flushBatchSize} per run, and drops idle
+     * ones that are fully written from memory.
+     */
+    @Scheduled(fixedDelayString = "${adoptions.memory.flush-interval:PT2S}")
+    void flush() {
+        flush(flushBatchSize);
+        evictIdle();
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(Integer.MAX_VALUE);
+    }
+
+    int sessions() {
+        return conversations.size();
+    }
+
+    private void flush(int limit) {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int written = 0;
+        for (Iterator<String> it = dirty.iterator(); it.hasNext() && written < limit; ) {
+            var conversationId = it.next();
+            var conversation = conversations.get(conversationId);
+            if (conversation == null) {
+                it.remove();
+                continue;
+            }
+            List<Message> snapshot;
+            synchronized (conversation) {
+                it.remove();
+                conversation.flushing = true;
+                snapshot = stored(conversation);
+            }
+            try {
+                repository.saveAll(conversationId, snapshot);
+                written++;
+                flushed.increment();
+            }
+            catch (RuntimeException e) {
+                // Stays in memory and is tried again on the next run
+                dirty.add(conversationId);
+                flushFailures.increment();
+                System.out.println("⚠️ Could not write conversation '" + conversationId + "': " + e.getMessage());
+                break;
+            }
+            finally {
+                synchronized (conversation) {
+                    conversation.flushing = false;
+                }
+            }
+        }
+        if (written > 0) {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.nanoTime() - idleTtl.toNanos();
+        int excess = conversations.size() - maxSessions;
+        var active = new ArrayList<Map.Entry<String, Conversation>>();
+        for (var entry : conversations.entrySet()) {
+            long lastAccess;
+            synchronized (entry.getValue()) {
+                lastAccess = entry.getValue().lastAccess;
+            }
+            if (lastAccess - idleBefore < 0 && evict(entry.getKey(), entry.getValue())) {
+                excess--;
+            }
+            else {
+                active.add(entry);
+            }
+        }
+        if (excess > 0) {
+            // Over the session limit: drop the least recently used of the rest
+            active.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+            for (var it = active.iterator(); it.hasNext() && excess > 0; ) {
+                var entry = it.next();
+                if (evict(entry.getKey(), entry.getValue())) {
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a conversation from memory unless it has unwritten changes or is being compacted.
+     */
+    private boolean evict(String conversationId, Conversation conversation) {
+        synchronized (conversation) {
+            if (conversation.compacting || conversation.flushing || dirty.contains(conversationId)) {
+                return false;
+            }
+            conversation.evicted = true;
+            return conversations.remove(conversationId, conversation);
+        }
+    }
+
+    private Conversation conversation(String conversationId) {
+        var conversation = conversations.get(conversationId);
+        if (conversation != null) {
+            hotLoads.increment();
+            return conversation;
+        }
+        return conversations.computeIfAbsent(conversationId, id -> {
+            repositoryLoads.increment();
+            var loaded = new Conversation();
+            var stored = repository.findByConversationId(id);
+            for (var message : stored) {
+                if (loaded.messages.isEmpty() && loaded.summary == null && message instanceof SystemMessage system
+                        && system.getText() != null && system.getText().startsWith(SUMMARY_PREFIX)) {
+                    loaded.summary = system.getText().substring(SUMMARY_PREFIX.length());
+                }
+                else {
+                    loaded.messages.add(message);
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Folds the older half of the window into the summary. Runs on the compactor thread; the
+     * conversation only grows at the end meanwhile, so the folded messages are still its head.
+     */
+    private void compact(String conversationId, Conversation conversation) {
+        List<Message> older;
+        String previousSummary;
+        synchronized (conversation) {
+            int keep = maxMessages / 2;
+            older = List.copyOf(conversation.messages.subList(0, conversation.messages.size() - keep));
+            previousSummary = conversation.summary;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            var summary = summarizer.summarize(previousSummary, older);
+            synchronized (conversation) {
+                conversation.messages.subList(0, older.size()).clear();
+                conversation.summary = summary;
+                conversation.compacting = false;
+                dirty.add(conversationId);
+            }
+            compactions.increment();
+            System.out.println("🗜️ Compacted " + older.size() + " messages of '" + conversationId + "' into a summary in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        catch (RuntimeException e) {
+            synchronized (conversation) {
+                conversation.compacting = false;
+            }
+            compactionFailures.increment();
+            System.out.println("⚠️ Could not summarize conversation '" + conversationId + "': " + e.getMessage());
+        }
+    }
+
+    private List<Message> window(Conversation conversation) {
+        var messages = conversation.messages;
+        var window = new ArrayList<Message>(Math.min(messages.size(), maxMessages) + 1);
+        if (conversation.summary != null) {
+            window.add(new SystemMessage(SUMMARY_PREFIX + conversation.summary));
+        }
+        window.addAll(messages.subList(Math.max(0, messages.size() - maxMessages), messages.size()));
+        return window;
+    }
+
+    private static List<Message> stored(Conversation conversation) {
+        var stored = new ArrayList<Message>(conversation.messages.size() + 1);
+        if (conversation.summary != null) {
+            stored.add(new SystemMessage(SUMMARY_PREFIX + conversation.summary));
+        }
+        stored.addAll(conversation.messages);
+        return stored;
+    }
+
+    private static Summarizer chatSummarizer(ChatClient ai) {
+        return (previousSummary, turns) -> {
+            var transcript = new StringBuilder();
+            if (previousSummary != null) {
+                transcript.append("Summary so far: ").append(previousSummary).append("\n\n");
+            }
+            for (var turn : turns) {
+                transcript.append(turn.getMessageType().getValue()).append(": ").append(turn.getText()).append('\n');
+            }
+            return ai.prompt().user(transcript.toString()).call().content();
+        };
+    }
+
+    private static Counter loads(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("adoptions.memory.loads")
+                .description("Conversation reads by where the conversation was found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.adoptions;
+
+/**
+ * Published after the dog table changed in a way that affects what the assistant knows,
+ * so anything derived from the catalog can be dropped or rebuilt.
+ */
+record DogCatalogChangedEvent(int upserted, int deleted) {
+}
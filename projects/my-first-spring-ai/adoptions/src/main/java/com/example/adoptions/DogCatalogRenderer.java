@@ -0,0 +1,91 @@
+package com.example.adoptions;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Owns the text form of the dog catalog. The full catalog is rendered once into an immutable
+ * snapshot tagged with the catalog version ({@code count(*)} and {@code max(updated_at)}) and only
+ * re-rendered in the background when that version moves, so the request path never formats dogs.
+ */
+@Component
+class DogCatalogRenderer {
+
+    record CatalogVersion(long count, LocalDateTime lastUpdated) {
+    }
+
+    record Snapshot(CatalogVersion version, int dogs, String text) {
+    }
+
+    private static final String HEADER = "Here are all the dogs available for adoption at Pooch Palace:\n\n";
+
+    private final DogRepository repository;
+    private final JdbcClient db;
+    private volatile Snapshot snapshot;
+
+    DogCatalogRenderer(DogRepository repository, JdbcClient db) {
+        this.repository = repository;
+        this.db = db;
+    }
+
+    /**
+     * One line describing a dog; used both for the catalog and as the embedded document text.
+     */
+    static String describe(Dog dog) {
+        return String.format(
+            "id: %s, name: %s, breed: %s, age: %s years, size: %s, energy: %s, " +
+            "good with kids: %s, good with cats: %s, good with dogs: %s, " +
+            "adoption fee: $%s, location: %s, description: %s",
+            dog.id(), dog.name(), dog.breed(), dog.ageYears(), dog.size(), dog.energyLevel(),
+            Boolean.TRUE.equals(dog.goodWithKids()) ? "Yes" : "No",
+            Boolean.TRUE.equals(dog.goodWithCats()) ? "Yes" : "No",
+            Boolean.TRUE.equals(dog.goodWithDogs()) ? "Yes" : "No",
+            dog.adoptionFee(), dog.location(), dog.description()
+        );
+    }
+
+    Snapshot snapshot() {
+        var current = snapshot;
+        if (current == null) {
+            // Only the very first caller renders on the request path
+            current = refreshIfChanged();
+        }
+        return current;
+    }
+
+    @EventListener(DogCatalogChangedEvent.class)
+    @Scheduled(fixedDelayString = "${adoptions.catalog.refresh-interval:PT30S}")
+    void refresh() {
+        refreshIfChanged();
+    }
+
+    private synchronized Snapshot refreshIfChanged() {
+        var version = currentVersion();
+        var current = snapshot;
+        if (current != null && current.version().equals(version)) {
+            return current;
+        }
+        var dogs = repository.findAll();
+        var text = new StringBuilder(HEADER);
+        for (var dog : dogs) {
+            text.append("• ").append(describe(dog)).append('\n');
+        }
+        current = new Snapshot(version, dogs.size(), text.toString());
+        snapshot = current;
+        System.out.println("🗂️ Rendered dog catalog snapshot: " + dogs.size() + " dogs, " + text.length() + " chars");
+        return current;
+    }
+
+    private CatalogVersion currentVersion() {
+        return db
+                .sql("select count(*) as count, max(updated_at) as last_updated from dog")
+                .query((rs, rowNum) -> new CatalogVersion(
+                        rs.getLong("count"),
+                        rs.getObject("last_updated", LocalDateTime.class)))
+                .single();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.adoptions;
+
+import org.springframework.ai.document.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Turns {@link Dog} rows into vector store documents. The text is what gets embedded,
+ * the metadata is what similarity searches can filter on inside pgvector.
+ */
+final class DogDocuments {
+
+    static final String DOG_ID = "dogId";
+    static final String BREED = "breed";
+    static final String SIZE = "size";
+    static final String ENERGY_LEVEL = "energyLevel";
+    static final String LOCATION = "location";
+    static final String GOOD_WITH_KIDS = "goodWithKids";
+    static final String GOOD_WITH_CATS = "goodWithCats";
+    static final String GOOD_WITH_DOGS = "goodWithDogs";
+    static final String AGE_YEARS = "ageYears";
+    static final String ADOPTION_FEE = "adoptionFee";
+
+    private DogDocuments() {
+    }
+
+    static Document toDocument(Dog dog) {
+        return new Document(documentId(dog.id()), text(dog), metadata(dog));
+    }
+
+    /**
+     * Stable per dog, so re-embedding a changed dog overwrites its previous vector in place.
+     */
+    static String documentId(int dogId) {
+        return UUID.nameUUIDFromBytes(("dog:" + dogId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static String text(Dog dog) {
+        return DogCatalogRenderer.describe(dog);
+    }
+
+    static Map<String, Object> metadata(Dog dog) {
+        // Document metadata must not contain null values, so optional columns are only added when set
+        var metadata = new HashMap<String, Object>();
+        metadata.put(DOG_ID, dog.id());
+        putIfPresent(metadata, BREED, dog.breed());
+        putIfPresent(metadata, SIZE, dog.size());
+        putIfPresent(metadata, ENERGY_LEVEL, dog.energyLevel());
+        putIfPresent(metadata, LOCATION, dog.location());
+        putIfPresent(metadata, GOOD_WITH_KIDS, dog.goodWithKids());
+        putIfPresent(metadata, GOOD_WITH_CATS, dog.goodWithCats());
+        putIfPresent(metadata, GOOD_WITH_DOGS, dog.goodWithDogs());
+        putIfPresent(metadata, AGE_YEARS, dog.ageYears());
+        if (dog.adoptionFee() != null) {
+            metadata.put(ADOPTION_FEE, dog.adoptionFee().doubleValue());
+        }
+        return metadata;
+    }
+
+    private static void putIfPresent(Map<String, Object> metadata, String key, Object value) {
+        if (value != null) {
+            metadata.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hybrid dog search. A Postgres full-text query on {@code dog.search_vector} (GIN index) and the
+ * pgvector similarity query (HNSW index) run in parallel, and the two rankings are merged with
+ * reciprocal rank fusion: a dog scores {@code 1 / (k + rank)} for every list it appears in.
+ * Full-text finds exact names, breeds and places that embeddings blur, vectors find dogs
+ * described in other words. Constraints detected in the question apply to both queries. A vector
+ * search that fails or takes longer than {@code adoptions.search.vector-timeout} is left out, and
+ * the full-text ranking is returned alone.
+ */
+@Component
+class DogHybridSearch implements DisposableBean {
+
+    enum Method {
+        HYBRID, LEXICAL, VECTOR;
+
+        /**
+         * @throws IllegalArgumentException for an unknown method
+         */
+        static Method of(String name) {
+            for (var method : values()) {
+                if (method.name().equalsIgnoreCase(name.trim())) {
+                    return method;
+                }
+            }
+            throw new IllegalArgumentException("Unknown search method '" + name + "', expected one of "
+                    + Arrays.stream(values()).map(m -> m.name().toLowerCase(Locale.ROOT)).toList());
+        }
+    }
+
+    /**
+     * A dog with its fused score and its 1-based rank in each list, {@code null} where it was not found.
+     */
+    record Hit(Dog dog, double score, Integer lexicalRank, Integer vectorRank) {
+    }
+
+    record Ranked(int dogId, double score, Integer lexicalRank, Integer vectorRank) {
+    }
+
+    private static final String DOG_COLUMNS = """
+            id, name, owner, description, breed, age_years, size, energy_level, good_with_kids, \
+            good_with_cats, good_with_dogs, adoption_fee, location, created_at, updated_at""";
+
+    private final JdbcClient db;
+    private final DogRepository repository;
+    private final DogRetriever retriever;
+    private final MeterRegistry meterRegistry;
+    private final int candidates;
+    private final int rrfK;
+    private final Duration vectorTimeout;
+    private final ExecutorService vectorExecutor;
+
+    DogHybridSearch(
+            JdbcClient db,
+            DogRepository repository,
+            DogRetriever retriever,
+            MeterRegistry meterRegistry,
+            @Value("${adoptions.search.candidates:20}") int candidates,
+            @Value("${adoptions.search.rrf-k:60}") int rrfK,
+            @Value("${adoptions.search.threads:8}") int threads,
+            @Value("${adoptions.search.vector-timeout:PT2S}") Duration vectorTimeout
+    ) {
+        this.db = db;
+        this.repository = repository;
+        this.retriever = retriever;
+        this.meterRegistry = meterRegistry;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+        this.vectorTimeout = vectorTimeout;
+        this.vectorExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "dog-vector-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    List<Hit> search(String query, int limit) {
+        return search(query, limit, Method.HYBRID);
+    }
+
+    List<Hit> search(String query, int limit, Method method) {
+        var timer = Timer.builder("adoptions.search")
+                .description("Time to search dogs, by method")
+                .tag("method", method.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        return timer.record(() -> switch (method) {
+            case LEXICAL -> hits(lexical(query, limit), List.of(), limit);
+            case VECTOR -> hits(List.of(), vector(query, limit), limit);
+            case HYBRID -> hybrid(query, limit);
+        });
+    }
+
+    private List<Hit> hybrid(String query, int limit) {
+        var vectorSearch = CompletableFuture.supplyAsync(() -> vector(query, Math.max(candidates, limit)),
+                vectorExecutor);
+        var lexical = lexical(query, Math.max(candidates, limit));
+        List<Integer> vector;
+        try {
+            vector = vectorSearch.orTimeout(vectorTimeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            // The vector side needs the embedding API; full-text alone still answers exact matches
+            var reason = e.getCause() instanceof TimeoutException
+                    ? "no answer within " + vectorTimeout.toMillis() + "ms"
+                    : e.getCause().getMessage();
+            System.err.println("ERROR during vector search, using full-text results only: " + reason);
+            vector = List.of();
+        }
+        return hits(lexical, vector, limit);
+    }
+
+    /**
+     * Dogs whose text matches any term of the query, best {@code ts_rank_cd} first.
+     */
+    List<Dog> lexical(String query, int limit) {
+        if (query.isBlank()) {
+            return List.of();
+        }
+        var params = new HashMap<String, Object>();
+        var filter = DogQueryFilters.fromQuestion(query);
+        var condition = filter == null ? "" : " and " + DogQueryFilters.toSql(filter, params);
+        // plainto_tsquery requires every term; a question should match dogs sharing any of its terms
+        return db.sql("""
+                        with query as (
+                            select cast(replace(cast(plainto_tsquery('english', :query) as text), '&', '|') as tsquery) as q
+                        )
+                        select %s
+                        from dog, query
+                        where search_vector @@ query.q%s
+                        order by ts_rank_cd(search_vector, query.q) desc, id
+                        limit :limit
+                        """.formatted(DOG_COLUMNS, condition))
+                .param("query", query)
+                .param("limit", limit)
+                .params(params)
+                .query(Dog.class)
+                .list();
+    }
+
+    /**
+     * Ids of the dogs nearest to the query in the vector store, nearest first.
+     */
+    List<Integer> vector(String query, int limit) {
+        return retriever.retrieve(query, limit).stream()
+                .map(Document::getMetadata)
+                .map(metadata -> ((Number) metadata.get(DogDocuments.DOG_ID)).intValue())
+                .distinct()
+                .toList();
+    }
+
+    private List<Hit> hits(List<Dog> lexical, List<Integer> vector, int limit) {
+        var ranked = fuse(lexical.stream().map(Dog::id).toList(), vector, rrfK);
+        if (ranked.size() > limit) {
+            ranked = ranked.subList(0, limit);
+        }
+        var dogs = new HashMap<Integer, Dog>();
+        lexical.forEach(dog -> dogs.put(dog.id(), dog));
+        var missing = ranked.stream().map(Ranked::dogId).filter(id -> !dogs.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            repository.findAllById(missing).forEach(dog -> dogs.put(dog.id(), dog));
+        }
+        var hits = new ArrayList<Hit>(ranked.size());
+        for (var r : ranked) {
+            var dog = dogs.get(r.dogId());
+            // Missing when the dog was deleted after it was indexed
+            if (dog != null) {
+                hits.add(new Hit(dog, r.score(), r.lexicalRank(), r.vectorRank()));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Reciprocal rank fusion of two rankings of dog ids, best first. Ties go to the dog with the
+     * better single rank, then to the lower id, so the order is stable.
+     */
+    static List<Ranked> fuse(List<Integer> lexical, List<Integer> vector, int k) {
+        var lexicalRanks = ranks(lexical);
+        var vectorRanks = ranks(vector);
+        var ids = new LinkedHashSet<>(lexical);
+        ids.addAll(vector);
+        return ids.stream()
+                .map(id -> {
+                    var lexicalRank = lexicalRanks.get(id);
+                    var vectorRank = vectorRanks.get(id);
+                    double score = (lexicalRank == null ? 0 : 1.0 / (k + lexicalRank))
+                            + (vectorRank == null ? 0 : 1.0 / (k + vectorRank));
+                    return new Ranked(id, score, lexicalRank, vectorRank);
+                })
+                .sorted(Comparator.comparingDouble(Ranked::score).reversed()
+                        .thenComparingInt(DogHybridSearch::bestRank)
+                        .thenComparingInt(Ranked::dogId))
+                .toList();
+    }
+
+    private static Map<Integer, Integer> ranks(List<Integer> ids) {
+        var ranks = new HashMap<Integer, Integer>();
+        for (int i = 0; i < ids.size(); i++) {
+            ranks.putIfAbsent(ids.get(i), i + 1);
+        }
+        return ranks;
+    }
+
+    private static int bestRank(Ranked ranked) {
+        return Math.min(ranked.lexicalRank() == null ? Integer.MAX_VALUE : ranked.lexicalRank(),
+                ranked.vectorRank() == null ? Integer.MAX_VALUE : ranked.vectorRank());
+    }
+
+    @Override
+    public void destroy() {
+        vectorExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bulk ingestion of dogs into the vector store. Dogs are grouped into batches bounded by a
+ * document count and an estimated token budget; every batch is one embedding request and one
+ * multi-row insert ({@link VectorStore#add} on pgvector). Batches run concurrently with bounded
+ * parallelism, and new batches are only started within the requests-per-minute budget.
+ * <p>
+ * After a batch is written the caller is told through {@code onBatchCommitted}, so a crashed run
+ * can pick up after the last committed batch instead of starting over.
+ */
+@Component
+class DogIngestionPipeline {
+
+    record IngestionReport(int documents, int batches, int failedBatches, long durationMs) {
+
+        double docsPerSecond() {
+            return durationMs == 0 ? documents : documents * 1000.0 / durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d docs in %d batches (%d failed) in %dms, %.1f docs/sec",
+                    documents, batches, failedBatches, durationMs, docsPerSecond());
+        }
+    }
+
+    private final VectorStore vectorStore;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final int batchSize;
+    private final int batchTokenBudget;
+    private final int parallelism;
+    private final RateLimiter rateLimiter;
+    private final Counter documentsCounter;
+    private final Timer batchTimer;
+
+    DogIngestionPipeline(
+            VectorStore vectorStore,
+            MeterRegistry meterRegistry,
+            @Value("${adoptions.ingestion.batch-size:100}") int batchSize,
+            @Value("${adoptions.ingestion.batch-token-budget:8000}") int batchTokenBudget,
+            @Value("${adoptions.ingestion.parallelism:4}") int parallelism,
+            @Value("${adoptions.ingestion.requests-per-minute:500}") int requestsPerMinute
+    ) {
+        this.vectorStore = vectorStore;
+        this.batchSize = batchSize;
+        this.batchTokenBudget = batchTokenBudget;
+        this.parallelism = parallelism;
+        this.rateLimiter = new RateLimiter(requestsPerMinute);
+        this.documentsCounter = Counter.builder("adoptions.ingestion.documents")
+                .description("Dog documents embedded and written to the vector store")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("adoptions.ingestion.batch")
+                .description("Time to embed and write one ingestion batch")
+                .register(meterRegistry);
+    }
+
+    IngestionReport ingest(List<Dog> dogs, Consumer<List<Dog>> onBatchCommitted) {
+        long startTime = System.currentTimeMillis();
+        var batches = partition(dogs);
+        if (batches.isEmpty()) {
+            return new IngestionReport(0, 0, 0, 0);
+        }
+
+        var written = new AtomicInteger();
+        var failed = new AtomicInteger();
+        var inFlight = new Semaphore(parallelism);
+        var executor = Executors.newFixedThreadPool(Math.min(parallelism, batches.size()));
+        try {
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (var batch : batches) {
+                // Backpressure: never more than `parallelism` batches in flight
+                inFlight.acquireUninterruptibly();
+                rateLimiter.acquire();
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        batchTimer.record(() -> vectorStore.add(batch.stream().map(DogDocuments::toDocument).toList()));
+                        onBatchCommitted.accept(batch);
+                        written.addAndGet(batch.size());
+                        documentsCounter.increment(batch.size());
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        System.err.println("ERROR ingesting batch of " + batch.size() + " dogs: " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        var report = new IngestionReport(written.get(), batches.size(), failed.get(),
+                System.currentTimeMillis() - startTime);
+        System.out.println("📦 Ingestion finished: " + report);
+        return report;
+    }
+
+    private List<List<Dog>> partition(List<Dog> dogs) {
+        var batches = new ArrayList<List<Dog>>();
+        var current = new ArrayList<Dog>();
+        int currentTokens = 0;
+        for (var dog : dogs) {
+            int tokens = tokenCountEstimator.estimate(DogDocuments.text(dog));
+            if (!current.isEmpty() && (current.size() >= batchSize || currentTokens + tokens > batchTokenBudget)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(dog);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Spaces request starts evenly so the embedding API never sees more than the configured
+     * number of requests per minute.
+     */
+    private static final class RateLimiter {
+
+        private final long intervalNanos;
+        private long nextPermitNanos = System.nanoTime();
+
+        RateLimiter(int requestsPerMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, requestsPerMinute);
+        }
+
+        synchronized void acquire() {
+            long now = System.nanoTime();
+            long waitNanos = nextPermitNanos - now;
+            nextPermitNanos = Math.max(now, nextPermitNanos) + intervalNanos;
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
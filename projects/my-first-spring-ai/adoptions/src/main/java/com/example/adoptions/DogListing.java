@@ -0,0 +1,123 @@
+package com.example.adoptions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link DogRepository} fragment for listing dogs without loading whole rows: pages are keyed on
+ * {@code id} ({@code id > after}, so a page costs the same at any depth), filters map onto the
+ * indexed {@code breed}, {@code size}, {@code location} and {@code adoption_fee} columns, and
+ * only the requested fields are selected.
+ */
+interface DogListing {
+
+    /**
+     * JSON field names of {@link Dog} and the columns they are read from, in output order.
+     */
+    Map<String, Column> FIELDS = fields(
+            new Column("id", "id", Integer.class),
+            new Column("name", "name", String.class),
+            new Column("owner", "owner", String.class),
+            new Column("description", "description", String.class),
+            new Column("breed", "breed", String.class),
+            new Column("ageYears", "age_years", Integer.class),
+            new Column("size", "size", String.class),
+            new Column("energyLevel", "energy_level", String.class),
+            new Column("goodWithKids", "good_with_kids", Boolean.class),
+            new Column("goodWithCats", "good_with_cats", Boolean.class),
+            new Column("goodWithDogs", "good_with_dogs", Boolean.class),
+            new Column("adoptionFee", "adoption_fee", BigDecimal.class),
+            new Column("location", "location", String.class),
+            new Column("createdAt", "created_at", LocalDateTime.class),
+            new Column("updatedAt", "updated_at", LocalDateTime.class)
+    );
+
+    /**
+     * Values the {@code size} column allows, per its CHECK constraint.
+     */
+    List<String> SIZES = List.of("SMALL", "MEDIUM", "LARGE", "EXTRA_LARGE");
+
+    record Column(String field, String name, Class<?> type) {
+    }
+
+    /**
+     * Criteria of a listing; {@code null} means not constrained. {@code size} is matched in any
+     * case, with "extra large" and "extra-large" read as {@code EXTRA_LARGE}.
+     *
+     * @throws IllegalArgumentException for a size the {@code size} column does not allow
+     */
+    record Filter(Integer after, String breed, String size, String location, BigDecimal minFee, BigDecimal maxFee) {
+
+        public Filter {
+            if (size != null) {
+                size = size.isBlank() ? null : size.trim().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+                if (size != null && !SIZES.contains(size)) {
+                    throw new IllegalArgumentException("Unknown size '" + size + "', expected one of " + SIZES);
+                }
+            }
+        }
+    }
+
+    /**
+     * One page of dogs reduced to the requested fields, and the {@code after} value for the next
+     * page, {@code null} on the last page.
+     */
+    record Page(List<Map<String, Object>> dogs, Integer next) {
+    }
+
+    record Counts(long dogs, long documents) {
+    }
+
+    Page findPage(Filter filter, Collection<String> fields, int limit);
+
+    /**
+     * Hands every matching dog to {@code consumer} while the rows are still being read, so the
+     * result is never held in memory as a whole.
+     */
+    void streamAll(Filter filter, Collection<String> fields, Consumer<Map<String, Object>> consumer);
+
+    /**
+     * Dogs and vector store documents, counted in one statement.
+     */
+    Counts counts();
+
+    /**
+     * The columns for the requested fields, always including {@code id} for the page cursor. No
+     * fields means all of them.
+     *
+     * @throws IllegalArgumentException for an unknown field
+     */
+    static List<Column> columns(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return List.copyOf(FIELDS.values());
+        }
+        var columns = new ArrayList<Column>();
+        columns.add(FIELDS.get("id"));
+        for (var field : fields) {
+            var column = FIELDS.get(field.trim());
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown field '" + field.trim() + "', expected one of " + FIELDS.keySet());
+            }
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private static Map<String, Column> fields(Column... columns) {
+        var fields = new LinkedHashMap<String, Column>();
+        for (var column : columns) {
+            fields.put(column.field(), column);
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+}
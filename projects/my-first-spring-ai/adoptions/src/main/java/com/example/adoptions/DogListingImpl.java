@@ -0,0 +1,130 @@
+package com.example.adoptions;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DogListing} on {@link JdbcClient}. Streaming reads through a cursor: the Postgres driver
+ * only honours the fetch size inside a transaction, so the query runs in a read-only one and
+ * fetches {@code fetchSize} rows at a time.
+ */
+class DogListingImpl implements DogListing {
+
+    private final JdbcClient db;
+    private final JdbcClient cursorDb;
+    private final TransactionTemplate readOnly;
+
+    DogListingImpl(
+            JdbcClient db,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${adoptions.dogs.stream.fetch-size:500}") int fetchSize
+    ) {
+        this.db = db;
+        var cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(fetchSize);
+        this.cursorDb = JdbcClient.create(cursorTemplate);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Override
+    public Page findPage(Filter filter, Collection<String> fields, int limit) {
+        var columns = DogListing.columns(fields);
+        var params = new HashMap<String, Object>();
+        // One row more than the page tells whether there is a next page without a count query
+        params.put("limit", limit + 1);
+        var dogs = db.sql(select(columns, filter, params) + " limit :limit")
+                .params(params)
+                .query(rowMapper(columns))
+                .list();
+        return page(dogs, limit);
+    }
+
+    @Override
+    public void streamAll(Filter filter, Collection<String> fields, Consumer<Map<String, Object>> consumer) {
+        var columns = DogListing.columns(fields);
+        var params = new HashMap<String, Object>();
+        var sql = select(columns, filter, params);
+        var mapper = rowMapper(columns);
+        RowCallbackHandler handler = rs -> consumer.accept(mapper.mapRow(rs, rs.getRow()));
+        readOnly.executeWithoutResult(status -> cursorDb.sql(sql).params(params).query(handler));
+    }
+
+    @Override
+    public Counts counts() {
+        return db.sql("select (select count(*) from dog) as dogs, (select count(*) from vector_store) as documents")
+                .query((rs, rowNum) -> new Counts(rs.getLong("dogs"), rs.getLong("documents")))
+                .single();
+    }
+
+    /**
+     * The page for up to {@code limit + 1} rows read in id order: the extra row only tells that
+     * there is a next page, which starts after the last dog of this one.
+     */
+    static Page page(List<Map<String, Object>> dogs, int limit) {
+        if (dogs.size() <= limit) {
+            return new Page(dogs, null);
+        }
+        var page = dogs.subList(0, limit);
+        return new Page(page, (Integer) page.get(limit - 1).get("id"));
+    }
+
+    static String select(List<Column> columns, Filter filter, Map<String, Object> params) {
+        var conditions = new ArrayList<String>();
+        if (filter.after() != null) {
+            conditions.add("id > :after");
+            params.put("after", filter.after());
+        }
+        // Equality and range conditions, so idx_dog_breed, idx_dog_size, idx_dog_location and
+        // idx_dog_adoption_fee apply
+        if (filter.breed() != null) {
+            conditions.add("breed = :breed");
+            params.put("breed", filter.breed());
+        }
+        if (filter.size() != null) {
+            conditions.add("size = :size");
+            params.put("size", filter.size());
+        }
+        if (filter.location() != null) {
+            conditions.add("location = :location");
+            params.put("location", filter.location());
+        }
+        if (filter.minFee() != null) {
+            conditions.add("adoption_fee >= :minFee");
+            params.put("minFee", filter.minFee());
+        }
+        if (filter.maxFee() != null) {
+            conditions.add("adoption_fee <= :maxFee");
+            params.put("maxFee", filter.maxFee());
+        }
+        return "select " + columns.stream().map(Column::name).collect(Collectors.joining(", "))
+                + " from dog"
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by id";
+    }
+
+    private static RowMapper<Map<String, Object>> rowMapper(List<Column> columns) {
+        return (rs, rowNum) -> {
+            var dog = new LinkedHashMap<String, Object>();
+            for (var column : columns) {
+                dog.put(column.field(), rs.getObject(column.name(), column.type()));
+            }
+            return dog;
+        };
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.adoptions;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Detects hard constraints in a free-text question ("small dogs in Tokyo good with cats")
+ * and turns them into a metadata {@link Filter.Expression} that pgvector evaluates in SQL.
+ * Only unambiguous phrases are recognised; everything else is left to semantic search.
+ * The same expression can be rendered against the {@code dog} table for full-text search.
+ */
+final class DogQueryFilters {
+
+    private static final Map<String, String> LOCATIONS = Map.ofEntries(
+            Map.entry("rio de janeiro", "Rio de Janeiro"),
+            Map.entry("mexico city", "Mexico City"),
+            Map.entry("seoul", "Seoul"),
+            Map.entry("tokyo", "Tokyo"),
+            Map.entry("singapore", "Singapore"),
+            Map.entry("new york city", "New York City"),
+            Map.entry("new york", "New York City"),
+            Map.entry("nyc", "New York City"),
+            Map.entry("amsterdam", "Amsterdam"),
+            Map.entry("paris", "Paris"),
+            Map.entry("mumbai", "Mumbai"),
+            Map.entry("new delhi", "New Delhi"),
+            Map.entry("barcelona", "Barcelona"),
+            Map.entry("london", "London"),
+            Map.entry("san francisco", "San Francisco")
+    );
+
+    // Document metadata keys and the dog columns they were taken from
+    private static final Map<String, String> COLUMNS = Map.of(
+            DogDocuments.DOG_ID, "id",
+            DogDocuments.BREED, "breed",
+            DogDocuments.SIZE, "size",
+            DogDocuments.ENERGY_LEVEL, "energy_level",
+            DogDocuments.LOCATION, "location",
+            DogDocuments.GOOD_WITH_KIDS, "good_with_kids",
+            DogDocuments.GOOD_WITH_CATS, "good_with_cats",
+            DogDocuments.GOOD_WITH_DOGS, "good_with_dogs",
+            DogDocuments.AGE_YEARS, "age_years",
+            DogDocuments.ADOPTION_FEE, "adoption_fee"
+    );
+
+    private static final Pattern SIZE = Pattern.compile(
+            "\\b(extra[- ]large|small|medium|large|big|little|tiny)\\s+(?:sized\\s+)?(?:dogs?|pups?|puppies|breeds?)\\b");
+    private static final Pattern ENERGY = Pattern.compile("\\b(high|low|medium)[- ]energy\\b");
+    // "have" and "live with" only count after a first-person subject: "I have a cat" is a constraint,
+    // "do you have dogs" is not
+    private static final Pattern GOOD_WITH = Pattern.compile(
+            "\\b(?:good with|friendly with|compatible with|(?:i|we)\\s+(?:have|live with)"
+                    + "|(?:i am|i'm|we are|we're)\\s+living with)\\s+"
+                    + "(?:my\\s+|other\\s+|small\\s+|young\\s+|a\\s+|two\\s+|some\\s+)?(kids|children|child|cats?|dogs?)\\b");
+    private static final Pattern MAX_FEE = Pattern.compile(
+            "\\b(?:under|below|less than|up to|at most|cheaper than)\\s*\\$\\s*(\\d+(?:\\.\\d+)?)");
+    private static final Pattern MAX_AGE = Pattern.compile(
+            "\\b(?:under|younger than|less than)\\s+(\\d+)\\s*(?:years?|yrs?)\\b");
+
+    private DogQueryFilters() {
+    }
+
+    /**
+     * @return the combined filter, or {@code null} when the question carries no detectable constraint
+     */
+    static Filter.Expression fromQuestion(String question) {
+        var text = question.toLowerCase(Locale.ROOT);
+        var b = new FilterExpressionBuilder();
+        var clauses = new ArrayList<FilterExpressionBuilder.Op>();
+
+        var size = SIZE.matcher(text);
+        if (size.find()) {
+            clauses.add(b.eq(DogDocuments.SIZE, switch (size.group(1)) {
+                case "small", "little", "tiny" -> "SMALL";
+                case "medium" -> "MEDIUM";
+                case "large", "big" -> "LARGE";
+                default -> "EXTRA_LARGE";
+            }));
+        }
+
+        var energy = ENERGY.matcher(text);
+        if (energy.find()) {
+            clauses.add(b.eq(DogDocuments.ENERGY_LEVEL, energy.group(1).toUpperCase(Locale.ROOT)));
+        }
+
+        var goodWith = GOOD_WITH.matcher(text);
+        while (goodWith.find()) {
+            var key = switch (goodWith.group(1)) {
+                case "kids", "children", "child" -> DogDocuments.GOOD_WITH_KIDS;
+                case "cat", "cats" -> DogDocuments.GOOD_WITH_CATS;
+                default -> DogDocuments.GOOD_WITH_DOGS;
+            };
+            clauses.add(b.eq(key, true));
+        }
+
+        var fee = MAX_FEE.matcher(text);
+        if (fee.find()) {
+            clauses.add(b.lte(DogDocuments.ADOPTION_FEE, Double.parseDouble(fee.group(1))));
+        }
+
+        var age = MAX_AGE.matcher(text);
+        if (age.find()) {
+            clauses.add(b.lt(DogDocuments.AGE_YEARS, Integer.parseInt(age.group(1))));
+        }
+
+        locationOf(text).ifPresent(location -> clauses.add(b.eq(DogDocuments.LOCATION, location)));
+
+        return combine(b, clauses);
+    }
+
+    /**
+     * Renders a filter as a SQL condition on the {@code dog} table. Values are not inlined but
+     * added to {@code params} as named parameters.
+     */
+    static String toSql(Filter.Expression expression, Map<String, Object> params) {
+        return switch (expression.type()) {
+            case AND -> "(" + operandToSql(expression.left(), params) + " and "
+                    + operandToSql(expression.right(), params) + ")";
+            case OR -> "(" + operandToSql(expression.left(), params) + " or "
+                    + operandToSql(expression.right(), params) + ")";
+            case NOT -> "not " + operandToSql(expression.left(), params);
+            case EQ -> comparison(expression, "=", params);
+            case NE -> comparison(expression, "<>", params);
+            case GT -> comparison(expression, ">", params);
+            case GTE -> comparison(expression, ">=", params);
+            case LT -> comparison(expression, "<", params);
+            case LTE -> comparison(expression, "<=", params);
+            case IN -> comparison(expression, "in", params);
+            case NIN -> comparison(expression, "not in", params);
+        };
+    }
+
+    private static String operandToSql(Filter.Operand operand, Map<String, Object> params) {
+        if (operand instanceof Filter.Expression expression) {
+            return toSql(expression, params);
+        }
+        if (operand instanceof Filter.Group group) {
+            return toSql(group.content(), params);
+        }
+        throw new IllegalArgumentException("Not a condition: " + operand);
+    }
+
+    private static String comparison(Filter.Expression expression, String operator, Map<String, Object> params) {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected key " + operator + " value: " + expression);
+        }
+        var column = COLUMNS.get(key.key());
+        if (column == null) {
+            throw new IllegalArgumentException("No dog column for filter key: " + key.key());
+        }
+        var name = "f" + params.size();
+        params.put(name, value.value());
+        return operator.endsWith("in")
+                ? column + " " + operator + " (:" + name + ")"
+                : column + " " + operator + " :" + name;
+    }
+
+    private static Optional<String> locationOf(String text) {
+        // Longest alias first so "new york city" wins over "new york"
+        return LOCATIONS.keySet().stream()
+                .sorted((a, c) -> Integer.compare(c.length(), a.length()))
+                .filter(alias -> Pattern.compile("\\b" + Pattern.quote(alias) + "\\b").matcher(text).find())
+                .findFirst()
+                .map(LOCATIONS::get);
+    }
+
+    private static Filter.Expression combine(FilterExpressionBuilder b, List<FilterExpressionBuilder.Op> clauses) {
+        if (clauses.isEmpty()) {
+            return null;
+        }
+        var combined = clauses.get(0);
+        for (int i = 1; i < clauses.size(); i++) {
+            combined = b.and(combined, clauses.get(i));
+        }
+        return combined.build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Looks up the dogs most relevant to a question in the pgvector store, so the
+ * assistant prompt only carries the top-k matches instead of the whole catalog.
+ * Constraints detected in the question are applied as metadata filters inside the query.
+ */
+@Component
+class DogRetriever {
+
+    private final VectorStore vectorStore;
+    private final Timer retrievalTimer;
+    private final int topK;
+    private final double similarityThreshold;
+
+    DogRetriever(
+            VectorStore vectorStore,
+            MeterRegistry meterRegistry,
+            @Value("${adoptions.assistant.retrieval.top-k:5}") int topK,
+            @Value("${adoptions.assistant.retrieval.similarity-threshold:0.3}") double similarityThreshold
+    ) {
+        this.vectorStore = vectorStore;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+        this.retrievalTimer = Timer.builder("adoptions.assistant.retrieval")
+                .description("Time spent querying the vector store for assistant context")
+                .register(meterRegistry);
+    }
+
+    List<Document> retrieve(String question) {
+        return retrieve(question, topK);
+    }
+
+    List<Document> retrieve(String question, int topK) {
+        var filter = DogQueryFilters.fromQuestion(question);
+        if (filter != null) {
+            System.out.println("🧮 Pushing filter down to pgvector: " + filter);
+        }
+        var request = SearchRequest.builder()
+                .query(question)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold)
+                .filterExpression(filter)
+                .build();
+        return retrievalTimer.record(() -> vectorStore.similaritySearch(request));
+    }
+}
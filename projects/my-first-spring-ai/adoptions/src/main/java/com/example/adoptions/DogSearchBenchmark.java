@@ -0,0 +1,109 @@
+package com.example.adoptions;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compares full-text, vector and hybrid dog search on a fixed set of questions about the sample
+ * dogs, each labelled with the dogs (by name) a good answer contains. Reports recall@k and the
+ * latency of each method. Every method gets one unmeasured warm-up pass first, after which question
+ * embeddings come from the embedding cache, so the latencies are those of the database queries.
+ */
+@Component
+class DogSearchBenchmark {
+
+    record Query(String question, Set<String> relevant) {
+    }
+
+    record MethodResult(DogHybridSearch.Method method, double recall, double p50Ms, double p95Ms, double maxMs,
+                        List<String> misses) {
+    }
+
+    record Report(int k, int iterations, List<MethodResult> methods) {
+
+        @Override
+        public String toString() {
+            var sb = new StringBuilder();
+            sb.append(String.format("Dog search benchmark: %d questions, recall@%d, %d timed runs per question%n",
+                    QUERIES.size(), k, iterations));
+            sb.append(String.format("%-8s %8s %9s %9s %9s%n", "method", "recall", "p50 ms", "p95 ms", "max ms"));
+            for (var m : methods) {
+                sb.append(String.format("%-8s %8.2f %9.2f %9.2f %9.2f%n", m.method().name().toLowerCase(Locale.ROOT),
+                        m.recall(), m.p50Ms(), m.p95Ms(), m.maxMs()));
+            }
+            for (var m : methods) {
+                if (!m.misses().isEmpty()) {
+                    sb.append("\nMissed by ").append(m.method().name().toLowerCase(Locale.ROOT)).append(":\n");
+                    m.misses().forEach(miss -> sb.append("- ").append(miss).append('\n'));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    static final List<Query> QUERIES = List.of(
+            // Exact names and breeds, where embeddings tend to drift to similar dogs
+            new Query("Jack Russell", Set.of("Max")),
+            new Query("Is Prancer still available?", Set.of("Prancer")),
+            new Query("Do you have a Rottweiler?", Set.of("Rocky")),
+            new Query("golden retriever", Set.of("Buddy")),
+            new Query("Tell me about Bella", Set.of("Bella")),
+            // Paraphrases that share few or no words with the dog text
+            new Query("a quiet companion for my grandmother who mostly sleeps", Set.of("Lucy")),
+            new Query("a dog that would enjoy a lake", Set.of("Bella")),
+            new Query("a guard dog for a house with a toddler", Set.of("Charlie")),
+            new Query("a sled dog that likes snow", Set.of("Luna")),
+            new Query("which dogs need a lot of exercise?", Set.of("Max", "Luna", "Rocky")),
+            // Both at once
+            new Query("a husky for hiking", Set.of("Luna")),
+            new Query("a playful terrier for an active owner", Set.of("Max"))
+    );
+
+    private final DogHybridSearch search;
+
+    DogSearchBenchmark(DogHybridSearch search) {
+        this.search = search;
+    }
+
+    Report run(int k, int iterations) {
+        var results = new ArrayList<MethodResult>();
+        for (var method : DogHybridSearch.Method.values()) {
+            QUERIES.forEach(query -> search.search(query.question(), k, method));
+
+            double recall = 0;
+            var misses = new ArrayList<String>();
+            var latencies = new long[QUERIES.size() * iterations];
+            int sample = 0;
+            for (var query : QUERIES) {
+                List<DogHybridSearch.Hit> hits = List.of();
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    hits = search.search(query.question(), k, method);
+                    latencies[sample++] = System.nanoTime() - start;
+                }
+                var found = hits.stream().map(hit -> hit.dog().name()).toList();
+                long relevantFound = query.relevant().stream().filter(found::contains).count();
+                recall += (double) relevantFound / query.relevant().size();
+                if (relevantFound < query.relevant().size()) {
+                    misses.add(String.format("\"%s\": expected %s, got %s", query.question(), query.relevant(), found));
+                }
+            }
+            Arrays.sort(latencies);
+            results.add(new MethodResult(method, recall / QUERIES.size(), percentile(latencies, 0.50),
+                    percentile(latencies, 0.95), latencies[latencies.length - 1] / 1_000_000.0, misses));
+        }
+        var report = new Report(k, iterations, results);
+        System.out.println("⏱️ " + report);
+        return report;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
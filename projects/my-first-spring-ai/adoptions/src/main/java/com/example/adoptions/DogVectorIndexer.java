@@ -0,0 +1,216 @@
+package com.example.adoptions;
+
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the vector store in step with the dog table. Only dogs whose {@code updated_at} is past
+ * the stored high-water mark are re-embedded, vectors of deleted dogs are removed, and the
+ * dog-id-to-document-id mapping lives in {@code dog_vector_index}.
+ */
+@Component
+class DogVectorIndexer {
+
+    private static final String STATE_NAME = "dog";
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    record IndexResult(int upserted, int failed, int deleted, LocalDateTime highWaterMark, long durationMs) {
+
+        boolean changed() {
+            return upserted > 0 || deleted > 0;
+        }
+    }
+
+    /**
+     * Told how many dogs a run is going to embed, then how many each committed batch wrote.
+     */
+    interface Progress {
+
+        Progress NONE = new Progress() {
+        };
+
+        default void planned(int dogs) {
+        }
+
+        default void committed(int dogs) {
+        }
+    }
+
+    private final DogRepository repository;
+    private final JdbcClient db;
+    private final VectorStore vectorStore;
+    private final DogIngestionPipeline pipeline;
+    private final ApplicationEventPublisher events;
+    private final boolean scheduleEnabled;
+    // updated_at is the time of the write (clock_timestamp(), V6), but the row only becomes
+    // visible at commit, so it can land just below the high-water mark. Each run rescans this
+    // window, which must exceed the longest write-to-commit time of a transaction touching dogs.
+    // Rows already indexed at their current version are skipped, which keeps the overlap cheap.
+    private final Duration overlap;
+
+    DogVectorIndexer(
+            DogRepository repository,
+            JdbcClient db,
+            VectorStore vectorStore,
+            DogIngestionPipeline pipeline,
+            ApplicationEventPublisher events,
+            @Value("${adoptions.indexer.schedule.enabled:true}") boolean scheduleEnabled,
+            @Value("${adoptions.indexer.overlap:PT1M}") Duration overlap
+    ) {
+        this.repository = repository;
+        this.db = db;
+        this.vectorStore = vectorStore;
+        this.pipeline = pipeline;
+        this.events = events;
+        this.scheduleEnabled = scheduleEnabled;
+        this.overlap = overlap;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${adoptions.indexer.interval:PT1M}",
+            initialDelayString = "${adoptions.indexer.interval:PT1M}"
+    )
+    void scheduledSync() {
+        if (!scheduleEnabled) {
+            return;
+        }
+        try {
+            var result = sync();
+            if (result.changed()) {
+                System.out.println("🔄 Scheduled re-index: " + result);
+            }
+        } catch (Exception e) {
+            System.err.println("ERROR during scheduled re-index: " + e.getMessage());
+        }
+    }
+
+    IndexResult sync() {
+        return sync(Progress.NONE);
+    }
+
+    synchronized IndexResult sync(Progress progress) {
+        long startTime = System.currentTimeMillis();
+        var highWaterMark = db
+                .sql("select high_water_mark from vector_index_state where name = :name")
+                .param("name", STATE_NAME)
+                .query(LocalDateTime.class)
+                .optional();
+
+        List<Dog> candidates;
+        if (highWaterMark.isEmpty()) {
+            // First run: whatever the store holds was written before the mapping existed
+            var untracked = db
+                    .sql("delete from vector_store where id::text not in (select document_id from dog_vector_index)")
+                    .update();
+            if (untracked > 0) {
+                System.out.println("🧹 Removed " + untracked + " untracked vector store documents");
+            }
+            candidates = repository.findAll();
+        } else {
+            candidates = repository.findByUpdatedAtAfter(highWaterMark.get().minus(overlap));
+        }
+
+        var indexedVersions = indexedVersions(candidates);
+        var changed = candidates.stream()
+                .filter(dog -> isStale(dog, indexedVersions.get(dog.id())))
+                .toList();
+        // Each committed batch is recorded in the mapping right away, so after a crash the
+        // next run skips those dogs and resumes with the first uncommitted batch
+        progress.planned(changed.size());
+        var ingestion = pipeline.ingest(changed, batch -> {
+            batch.forEach(this::recordIndexed);
+            progress.committed(batch.size());
+        });
+        int failed = changed.size() - ingestion.documents();
+
+        var deleted = removeDeletedDogs();
+
+        var newHighWaterMark = candidates.stream()
+                .map(Dog::updatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(highWaterMark.orElse(EPOCH));
+        if (failed > 0) {
+            // Failed dogs must be retried on the next run, so the mark stays where it was
+            newHighWaterMark = highWaterMark.orElse(null);
+        } else if (highWaterMark.isPresent() && highWaterMark.get().isAfter(newHighWaterMark)) {
+            newHighWaterMark = highWaterMark.get();
+        }
+        if (newHighWaterMark != null) {
+            db.sql("""
+                    insert into vector_index_state (name, high_water_mark) values (:name, :mark)
+                    on conflict (name) do update set high_water_mark = excluded.high_water_mark
+                    """)
+                    .param("name", STATE_NAME)
+                    .param("mark", newHighWaterMark)
+                    .update();
+        }
+
+        var result = new IndexResult(ingestion.documents(), failed, deleted, newHighWaterMark,
+                System.currentTimeMillis() - startTime);
+        if (result.changed()) {
+            events.publishEvent(new DogCatalogChangedEvent(result.upserted(), result.deleted()));
+        }
+        return result;
+    }
+
+    private Map<Integer, LocalDateTime> indexedVersions(List<Dog> dogs) {
+        var versions = new HashMap<Integer, LocalDateTime>();
+        if (dogs.isEmpty()) {
+            return versions;
+        }
+        db.sql("select dog_id, source_updated_at from dog_vector_index where dog_id in (:ids)")
+                .param("ids", dogs.stream().map(Dog::id).toList())
+                .query((rs, rowNum) -> versions.put(rs.getInt("dog_id"),
+                        rs.getObject("source_updated_at", LocalDateTime.class)))
+                .list();
+        return versions;
+    }
+
+    private static boolean isStale(Dog dog, LocalDateTime indexedVersion) {
+        return indexedVersion == null || dog.updatedAt() == null || dog.updatedAt().isAfter(indexedVersion);
+    }
+
+    private void recordIndexed(Dog dog) {
+        db.sql("""
+                insert into dog_vector_index (dog_id, document_id, source_updated_at, indexed_at)
+                values (:dogId, :documentId, :sourceUpdatedAt, current_timestamp)
+                on conflict (dog_id) do update set
+                    document_id = excluded.document_id,
+                    source_updated_at = excluded.source_updated_at,
+                    indexed_at = excluded.indexed_at
+                """)
+                .param("dogId", dog.id())
+                .param("documentId", DogDocuments.documentId(dog.id()))
+                .param("sourceUpdatedAt", dog.updatedAt() != null ? dog.updatedAt() : LocalDateTime.now())
+                .update();
+    }
+
+    private int removeDeletedDogs() {
+        var orphans = db
+                .sql("select document_id from dog_vector_index where dog_id not in (select id from dog)")
+                .query(String.class)
+                .list();
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        vectorStore.delete(orphans);
+        db.sql("delete from dog_vector_index where document_id in (:ids)")
+                .param("ids", orphans)
+                .update();
+        return orphans.size();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Puts the local embedding cache in front of the OpenAI embedding model. The caching model is
+ * {@link Primary}, so the pgvector store and everything else that asks for an
+ * {@link org.springframework.ai.embedding.EmbeddingModel} goes through it, but it only caches the
+ * batches the store embeds documents with; query embeddings pass through uncached.
+ */
+@Configuration
+@ConditionalOnProperty(name = "adoptions.embedding-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class EmbeddingCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    EmbeddingCacheStore embeddingCacheStore(
+            @Value("${adoptions.embedding-cache.directory:.embedding-cache}") String directory) {
+        return new EmbeddingCacheStore(Path.of(directory));
+    }
+
+    @Bean
+    @Primary
+    CachingEmbeddingModel cachingEmbeddingModel(
+            OpenAiEmbeddingModel openAiEmbeddingModel,
+            EmbeddingCacheStore embeddingCacheStore,
+            MeterRegistry meterRegistry,
+            @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String model) {
+        return new CachingEmbeddingModel(openAiEmbeddingModel, embeddingCacheStore, model, meterRegistry);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.adoptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local, file-backed store of embedding vectors keyed by a content hash.
+ * <p>
+ * Vectors are written as raw little-endian float arrays into {@code embeddings.dat}, which is
+ * memory-mapped in fixed-size segments so reads are plain memory accesses. Every stored vector
+ * gets a fixed-size record (hash, offset, dimensions) appended to {@code embeddings.idx}; the
+ * index is loaded into memory on startup. The vector is forced to disk before its index record is
+ * appended, so a crash, even of the machine, can at worst lose the last vector, never leave a
+ * record that points at a partial one.
+ */
+class EmbeddingCacheStore implements AutoCloseable {
+
+    static final int KEY_BYTES = 32;
+
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int INDEX_RECORD_BYTES = KEY_BYTES + Long.BYTES + Integer.BYTES;
+
+    private record Entry(long offset, int dimensions) {
+    }
+
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private long writePosition;
+
+    EmbeddingCacheStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.dataChannel = FileChannel.open(directory.resolve("embeddings.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.indexChannel = FileChannel.open(directory.resolve("embeddings.idx"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            loadIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedding cache in " + directory, e);
+        }
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    float[] get(byte[] key) {
+        var entry = index.get(HexFormat.of().formatHex(key));
+        if (entry == null) {
+            return null;
+        }
+        var segment = segment(entry.offset());
+        int position = (int) (entry.offset() % SEGMENT_BYTES);
+        var vector = new float[entry.dimensions()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = segment.getFloat(position + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    synchronized void put(byte[] key, float[] vector) {
+        var hex = HexFormat.of().formatHex(key);
+        if (index.containsKey(hex)) {
+            return;
+        }
+        long length = (long) vector.length * Float.BYTES;
+        // A vector never straddles two segments
+        if (writePosition % SEGMENT_BYTES + length > SEGMENT_BYTES) {
+            writePosition = (writePosition / SEGMENT_BYTES + 1) * SEGMENT_BYTES;
+        }
+        try {
+            var segment = segment(writePosition);
+            int position = (int) (writePosition % SEGMENT_BYTES);
+            for (int i = 0; i < vector.length; i++) {
+                segment.putFloat(position + i * Float.BYTES, vector[i]);
+            }
+            // Without this the page cache may write the index record back before the vector
+            segment.force(position, (int) length);
+
+            var record = ByteBuffer.allocate(INDEX_RECORD_BYTES)
+                    .put(key)
+                    .putLong(writePosition)
+                    .putInt(vector.length)
+                    .flip();
+            while (record.hasRemaining()) {
+                indexChannel.write(record, indexChannel.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to embedding cache", e);
+        }
+        index.put(hex, new Entry(writePosition, vector.length));
+        writePosition += length;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (var segment : segments) {
+            segment.force();
+        }
+        indexChannel.force(false);
+        indexChannel.close();
+        dataChannel.close();
+    }
+
+    private void loadIndex() throws IOException {
+        long records = indexChannel.size() / INDEX_RECORD_BYTES;
+        var buffer = ByteBuffer.allocate(INDEX_RECORD_BYTES);
+        var key = new byte[KEY_BYTES];
+        for (long r = 0; r < records; r++) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (indexChannel.read(buffer, r * INDEX_RECORD_BYTES + buffer.position()) < 0) {
+                    return;
+                }
+            }
+            buffer.flip();
+            buffer.get(key);
+            long offset = buffer.getLong();
+            int dimensions = buffer.getInt();
+            index.put(HexFormat.of().formatHex(key), new Entry(offset, dimensions));
+            writePosition = Math.max(writePosition, offset + (long) dimensions * Float.BYTES);
+        }
+        // Drop a torn trailing record left by a crash mid-append
+        indexChannel.truncate(records * INDEX_RECORD_BYTES);
+    }
+
+    private MappedByteBuffer segment(long offset) {
+        int number = (int) (offset / SEGMENT_BYTES);
+        if (number < segments.size()) {
+            return segments.get(number);
+        }
+        synchronized (segments) {
+            try {
+                while (segments.size() <= number) {
+                    var mapped = dataChannel.map(FileChannel.MapMode.READ_WRITE,
+                            segments.size() * SEGMENT_BYTES, SEGMENT_BYTES);
+                    mapped.order(ByteOrder.LITTLE_ENDIAN);
+                    segments.add(mapped);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map embedding cache segment " + number, e);
+            }
+            return segments.get(number);
+        }
+    }
+}
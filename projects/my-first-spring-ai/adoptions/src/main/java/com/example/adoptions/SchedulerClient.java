@@ -0,0 +1,183 @@
+package com.example.adoptions;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * The one HTTP client the adoptions service uses to talk to the scheduler. Connections are pooled
+ * and kept alive, connect and read timeouts are bounded, and every call goes through a bulkhead,
+ * a circuit breaker and a retry.
+ * <p>
+ * Every booking carries an {@code Idempotency-Key} that all of its retries share, so the
+ * scheduler returns the original appointment when a retry repeats a request it already acted on.
+ * That makes read timeouts and 5xx safe to retry alongside refused connections, pool lease
+ * timeouts and 429. Pool, breaker, bulkhead and retry state are published to the meter registry.
+ */
+@Component
+class SchedulerClient implements DisposableBean {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SchedulerReply(Boolean success, String appointmentTime, String appointmentId, String message) {
+    }
+
+    private static final String NAME = "scheduler";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final CloseableHttpClient httpClient;
+    private final RestClient restClient;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+
+    SchedulerClient(
+            MeterRegistry meterRegistry,
+            @Value("${scheduler.url:http://localhost:8081}") String schedulerUrl,
+            @Value("${scheduler.client.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${scheduler.client.read-timeout:PT10S}") Duration readTimeout,
+            @Value("${scheduler.client.pool.max-connections:20}") int maxConnections,
+            @Value("${scheduler.client.retry.max-attempts:3}") int maxAttempts,
+            @Value("${scheduler.client.retry.backoff:PT0.2S}") Duration backoff,
+            @Value("${scheduler.client.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${scheduler.client.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+            @Value("${scheduler.client.bulkhead.max-concurrent-calls:10}") int maxConcurrentCalls,
+            @Value("${scheduler.client.bulkhead.max-wait:PT0.5S}") Duration maxWait
+    ) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                // Retries are decided below, where we know which failures are safe to repeat
+                .disableAutomaticRetries()
+                .build();
+        this.restClient = RestClient.builder()
+                .baseUrl(schedulerUrl)
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+
+        var bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        this.bulkhead = bulkheads.bulkhead(NAME);
+        var circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(5)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(2)
+                // A rejected request (4xx) says nothing about the scheduler's health
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        this.circuitBreaker = circuitBreakers.circuitBreaker(NAME);
+        var retries = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialBackoff(backoff, 2.0))
+                .retryOnException(SchedulerClient::isSafeToRetry)
+                .build());
+        this.retry = retries.retry(NAME);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, NAME).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retries).bindTo(meterRegistry);
+    }
+
+    /**
+     * Books the earliest free slot for the dog at its shelter {@code location}; without one the
+     * scheduler books at its default location.
+     */
+    SchedulerReply schedule(int dogId, String dogName, String location) {
+        var idempotencyKey = UUID.randomUUID().toString();
+        var body = new HashMap<String, Object>();
+        body.put("dogId", dogId);
+        body.put("dogName", dogName);
+        if (location != null && !location.isBlank()) {
+            body.put("location", location);
+        }
+        Supplier<SchedulerReply> call = () -> restClient.post()
+                .uri("/schedule")
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .body(body)
+                .retrieve()
+                .body(SchedulerReply.class);
+        call = Bulkhead.decorateSupplier(bulkhead, call);
+        call = CircuitBreaker.decorateSupplier(circuitBreaker, call);
+        call = Retry.decorateSupplier(retry, call);
+        return call.get();
+    }
+
+    static boolean isSafeToRetry(Throwable failure) {
+        if (failure instanceof HttpServerErrorException
+                || failure instanceof HttpClientErrorException.TooManyRequests) {
+            return true;
+        }
+        if (failure instanceof ResourceAccessException) {
+            // Connection refused, no pooled connection free, or no answer in time: a repeat with
+            // the same idempotency key cannot book twice
+            for (var cause = failure.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ConnectException
+                        || cause instanceof ConnectionRequestTimeoutException
+                        || cause instanceof SocketTimeoutException) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+}
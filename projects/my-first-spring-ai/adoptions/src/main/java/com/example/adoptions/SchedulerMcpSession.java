@@ -0,0 +1,298 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-lived MCP session to the scheduler, shared by every assistant request.
+ * <p>
+ * The tool list and input schemas are fetched once and cached. They are only fetched again when
+ * the scheduler announces a change or when a reconnect lands on a different server name or
+ * version. The session is pinged in the background; a dead session is dropped and re-opened with
+ * exponential backoff. Callbacks handed to the {@code ChatClient} always use the current session,
+ * so they stay valid across reconnects; while there is none, a tool call fails at once with
+ * "scheduler unavailable" instead of waiting for a connect. A failed tool call is not retried here; the scheduler
+ * deduplicates repeated bookings by user, so the model can safely ask again.
+ */
+@Component
+class SchedulerMcpSession implements ToolCallbackProvider, DisposableBean {
+
+    /** Tool context entry holding the user the assistant is talking to. */
+    static final String USER_CONTEXT_KEY = "user";
+
+    private final String url;
+    private final String sseEndpoint;
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final MeterRegistry meterRegistry;
+    private final Counter connects;
+    private final Counter toolListings;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "scheduler-mcp-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean reconnectPending = new AtomicBoolean();
+
+    private volatile McpSyncClient client;
+    private volatile McpSchema.Implementation toolsServerInfo;
+    private volatile List<ToolCallback> tools = List.of();
+    // Only touched on the session thread
+    private int failedReconnects;
+
+    SchedulerMcpSession(
+            MeterRegistry meterRegistry,
+            @Value("${scheduler.mcp.url:${scheduler.url:http://localhost:8081}}") String url,
+            @Value("${scheduler.mcp.sse-endpoint:/sse}") String sseEndpoint,
+            @Value("${scheduler.mcp.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${scheduler.mcp.request-timeout:PT10S}") Duration requestTimeout,
+            @Value("${scheduler.mcp.health-check-interval:PT15S}") Duration healthCheckInterval,
+            @Value("${scheduler.mcp.reconnect.initial-backoff:PT1S}") Duration initialBackoff,
+            @Value("${scheduler.mcp.reconnect.max-backoff:PT30S}") Duration maxBackoff
+    ) {
+        this.url = url;
+        this.sseEndpoint = sseEndpoint;
+        this.connectTimeout = connectTimeout;
+        this.requestTimeout = requestTimeout;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.meterRegistry = meterRegistry;
+        this.connects = Counter.builder("adoptions.mcp.session.connects")
+                .description("MCP sessions opened to the scheduler")
+                .register(meterRegistry);
+        this.toolListings = Counter.builder("adoptions.mcp.tools.listings")
+                .description("Times the scheduler tool list and schemas were fetched")
+                .register(meterRegistry);
+        Gauge.builder("adoptions.mcp.session.connected", this, session -> session.isConnected() ? 1 : 0)
+                .description("Whether an MCP session to the scheduler is open")
+                .register(meterRegistry);
+
+        // Connect in the background so a scheduler that is down does not hold up startup
+        scheduleReconnect(Duration.ZERO);
+        executor.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval.toMillis(),
+                healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        return tools.toArray(ToolCallback[]::new);
+    }
+
+    boolean isConnected() {
+        return client != null;
+    }
+
+    String url() {
+        return url + sseEndpoint;
+    }
+
+    /**
+     * Returns the open session, opening one on the calling thread if there is none. Only the
+     * session thread and tests call this; tool calls never wait for a connect.
+     */
+    synchronized McpSyncClient connect() {
+        if (client != null) {
+            return client;
+        }
+        var transport = HttpClientSseClientTransport.builder(url)
+                .sseEndpoint(sseEndpoint)
+                .connectTimeout(connectTimeout)
+                .build();
+        var candidate = McpClient.sync(transport)
+                .clientInfo(new McpSchema.Implementation("adoptions", "1.0.0"))
+                .requestTimeout(requestTimeout)
+                .initializationTimeout(requestTimeout)
+                .toolsChangeConsumer(this::cacheTools)
+                .build();
+        try {
+            var serverInfo = candidate.initialize().serverInfo();
+            if (tools.isEmpty() || !Objects.equals(serverInfo, toolsServerInfo)) {
+                cacheTools(candidate.listTools().tools());
+                toolsServerInfo = serverInfo;
+            } else {
+                System.out.println("🔌 Reusing " + tools.size() + " cached scheduler tool schemas for " + serverInfo);
+            }
+        } catch (RuntimeException e) {
+            candidate.close();
+            throw e;
+        }
+        client = candidate;
+        connects.increment();
+        System.out.println("🔌 MCP session to scheduler open at " + url());
+        return candidate;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        var current = client;
+        if (current != null) {
+            client = null;
+            current.closeGracefully();
+        }
+    }
+
+    private String callTool(ToolDefinition definition, String input, String user) {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
+        try {
+            var session = client;
+            if (session == null) {
+                // Fail fast rather than connect on the request thread; the session thread reconnects
+                scheduleReconnect(Duration.ZERO);
+                outcome = "unavailable";
+                throw new ToolExecutionException(definition, new IllegalStateException("scheduler unavailable"));
+            }
+            McpSchema.CallToolResult result;
+            try {
+                result = session.callTool(new McpSchema.CallToolRequest(definition.name(), arguments(definition, input, user)));
+            } catch (McpError e) {
+                // The scheduler answered with a protocol error, the session itself is fine
+                throw new ToolExecutionException(definition, e);
+            } catch (RuntimeException e) {
+                // Transport failure: drop the session and reopen it in the background
+                System.err.println("ERROR calling scheduler tool " + definition.name() + ": " + e.getMessage());
+                disconnect(session);
+                scheduleReconnect(Duration.ZERO);
+                throw new ToolExecutionException(definition, e);
+            }
+            if (Boolean.TRUE.equals(result.isError())) {
+                outcome = "tool-error";
+                throw new ToolExecutionException(definition,
+                        new IllegalStateException("Scheduler tool failed: " + result.content()));
+            }
+            outcome = "success";
+            return ModelOptionsUtils.toJsonString(result.content());
+        } catch (ToolExecutionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ToolExecutionException(definition, e);
+        } finally {
+            sample.stop(Timer.builder("adoptions.mcp.tool.call")
+                    .description("Latency of scheduler tool calls over MCP")
+                    .tag("tool", definition.name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * The model does not know who it is talking to, so the user from the tool context is added as
+     * {@code requestedBy} for tools that accept it. The scheduler uses it to spot repeated bookings.
+     */
+    private static Map<String, Object> arguments(ToolDefinition definition, String input, String user) {
+        var arguments = new HashMap<>(ModelOptionsUtils.jsonToMap(input));
+        if (user != null && definition.inputSchema().contains("\"requestedBy\"")) {
+            arguments.putIfAbsent("requestedBy", user);
+        }
+        return arguments;
+    }
+
+    private void cacheTools(List<McpSchema.Tool> discovered) {
+        this.tools = discovered.stream()
+                .map(tool -> (ToolCallback) new SessionToolCallback(McpToolUtils.createToolDefinition(tool.name(), tool)))
+                .toList();
+        toolListings.increment();
+        System.out.println("🧰 Scheduler tools: " + discovered.stream().map(McpSchema.Tool::name).toList());
+    }
+
+    private void checkHealth() {
+        var current = client;
+        if (current == null) {
+            scheduleReconnect(Duration.ZERO);
+            return;
+        }
+        try {
+            current.ping();
+        } catch (RuntimeException e) {
+            System.err.println("MCP session to scheduler lost: " + e.getMessage());
+            disconnect(current);
+            scheduleReconnect(Duration.ZERO);
+        }
+    }
+
+    private synchronized void disconnect(McpSyncClient stale) {
+        if (client == stale) {
+            client = null;
+            stale.close();
+        }
+    }
+
+    private void scheduleReconnect(Duration delay) {
+        if (reconnectPending.compareAndSet(false, true)) {
+            executor.schedule(this::reconnect, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reconnect() {
+        reconnectPending.set(false);
+        try {
+            connect();
+            failedReconnects = 0;
+        } catch (RuntimeException e) {
+            long backoff = Math.min(maxBackoff.toMillis(),
+                    initialBackoff.toMillis() << Math.min(failedReconnects, 16));
+            failedReconnects++;
+            System.err.println("Could not open MCP session to scheduler at " + url() + " (" + e.getMessage()
+                    + "), retrying in " + backoff + "ms");
+            scheduleReconnect(Duration.ofMillis(backoff));
+        }
+    }
+
+    /**
+     * Tool callback bound to the session rather than to one client, so it survives reconnects.
+     */
+    private final class SessionToolCallback implements ToolCallback {
+
+        private final ToolDefinition definition;
+
+        SessionToolCallback(ToolDefinition definition) {
+            this.definition = definition;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return callTool(definition, toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            var user = toolContext == null ? null : toolContext.getContext().get(USER_CONTEXT_KEY);
+            return callTool(definition, toolInput, user == null ? null : user.toString());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.adoptions;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings the vector store up to date with the dog table in the background once the application
+ * has started, so startup never waits for the embedding API. Until that first sync has completed
+ * this health indicator reports OUT_OF_SERVICE with the progress so far, which keeps the instance
+ * out of the readiness group; a failed sync is retried with exponential backoff. Callers check
+ * {@link #isReady()} to avoid the vector store in the meantime.
+ */
+@Component
+class VectorStoreWarmup implements HealthIndicator, DisposableBean {
+
+    enum Phase {
+        PENDING, INDEXING, RETRYING, READY
+    }
+
+    /**
+     * One sync of the vector store, reporting its progress.
+     */
+    @FunctionalInterface
+    interface Sync {
+
+        DogVectorIndexer.IndexResult run(DogVectorIndexer.Progress progress);
+    }
+
+    private final Sync sync;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "vector-store-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger planned = new AtomicInteger();
+    private final AtomicInteger embedded = new AtomicInteger();
+
+    private volatile Phase phase = Phase.PENDING;
+    private volatile int attempts;
+    private volatile String lastError;
+    private volatile DogVectorIndexer.IndexResult result;
+
+    @Autowired
+    VectorStoreWarmup(
+            DogVectorIndexer indexer,
+            @Value("${adoptions.warmup.initial-backoff:PT1S}") Duration initialBackoff,
+            @Value("${adoptions.warmup.max-backoff:PT1M}") Duration maxBackoff
+    ) {
+        this(indexer::sync, initialBackoff, maxBackoff);
+    }
+
+    VectorStoreWarmup(Sync sync, Duration initialBackoff, Duration maxBackoff) {
+        this.sync = sync;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (phase == Phase.PENDING) {
+            phase = Phase.INDEXING;
+            executor.execute(this::attempt);
+        }
+    }
+
+    boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    @Override
+    public Health health() {
+        if (phase == Phase.READY) {
+            return Health.up()
+                    .withDetail("upserted", result.upserted())
+                    .withDetail("deleted", result.deleted())
+                    .withDetail("durationMs", result.durationMs())
+                    .build();
+        }
+        var health = Health.outOfService()
+                .withDetail("phase", phase)
+                .withDetail("embedded", embedded.get())
+                .withDetail("planned", planned.get())
+                .withDetail("attempts", attempts);
+        if (lastError != null) {
+            health.withDetail("lastError", lastError);
+        }
+        return health.build();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void attempt() {
+        attempts++;
+        planned.set(0);
+        embedded.set(0);
+        try {
+            var indexResult = sync.run(new DogVectorIndexer.Progress() {
+
+                @Override
+                public void planned(int dogs) {
+                    planned.set(dogs);
+                    if (dogs > 0) {
+                        System.out.println("📚 Vector store warm-up: embedding " + dogs + " dogs in the background");
+                    }
+                }
+
+                @Override
+                public void committed(int dogs) {
+                    System.out.println("📚 Vector store warm-up: " + embedded.addAndGet(dogs) + "/" + planned.get()
+                            + " dogs embedded");
+                }
+            });
+            if (indexResult.failed() > 0) {
+                throw new IllegalStateException(indexResult.failed() + " dogs could not be embedded");
+            }
+            result = indexResult;
+            lastError = null;
+            phase = Phase.READY;
+            System.out.println("📚 Vector store ready after " + attempts + " attempt(s): " + indexResult);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            phase = Phase.RETRYING;
+            var backoff = backoff(attempts);
+            System.err.println("ERROR during vector store warm-up (attempt " + attempts + "), retrying in "
+                    + backoff.toMillis() + "ms: " + e.getMessage());
+            executor.schedule(this::attempt, backoff.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        var backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,31 @@
+-- V4: Track which vector store document belongs to which dog
+-- This migration supports incremental re-indexing driven by dog.updated_at
+
+CREATE TABLE IF NOT EXISTS dog_vector_index (
+    dog_id INTEGER PRIMARY KEY,
+    document_id VARCHAR(64) NOT NULL,
+    source_updated_at TIMESTAMP NOT NULL,
+    indexed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS vector_index_state (
+    name VARCHAR(50) PRIMARY KEY,
+    high_water_mark TIMESTAMP NOT NULL
+);
+
+-- Keep updated_at current so every change to a dog is picked up by the indexer
+CREATE OR REPLACE FUNCTION touch_dog_updated_at() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.updated_at = CURRENT_TIMESTAMP;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS dog_touch_updated_at ON dog;
+CREATE TRIGGER dog_touch_updated_at
+    BEFORE UPDATE ON dog
+    FOR EACH ROW EXECUTE FUNCTION touch_dog_updated_at();
+
+UPDATE dog SET updated_at = CURRENT_TIMESTAMP WHERE updated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_dog_updated_at ON dog(updated_at);
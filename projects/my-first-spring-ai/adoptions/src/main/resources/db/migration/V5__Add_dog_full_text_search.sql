@@ -0,0 +1,12 @@
+-- V5: Full-text search over the dog text
+-- This migration supports hybrid dog search: exact names, breeds and places are matched
+-- lexically, everything else is left to the vector store
+
+ALTER TABLE dog ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(breed, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(location, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_dog_search_vector ON dog USING GIN (search_vector);
@@ -0,0 +1,18 @@
+-- V6: Stamp dog.updated_at with the time of the write, not the start of its transaction
+-- CURRENT_TIMESTAMP is fixed when a transaction begins, so a row changed late in a long
+-- transaction carried a time far below the indexer's high-water mark and was missed once the
+-- indexer's overlap window had passed. clock_timestamp() leaves only the time between the write
+-- and the commit, which the overlap (adoptions.indexer.overlap) has to cover.
+
+CREATE OR REPLACE FUNCTION touch_dog_updated_at() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.updated_at = clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Inserts go through the trigger too; the column default would use the transaction start
+DROP TRIGGER IF EXISTS dog_touch_updated_at ON dog;
+CREATE TRIGGER dog_touch_updated_at
+    BEFORE INSERT OR UPDATE ON dog
+    FOR EACH ROW EXECUTE FUNCTION touch_dog_updated_at();
@@ -0,0 +1,148 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link AssistantResponseCache} over an embedding model that maps every question about dogs
+ * to the same vector, so only the constraints in a question and the cache bookkeeping decide
+ * between a hit and a miss.
+ */
+class AssistantResponseCacheTests {
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger computed = new AtomicInteger();
+    private final AssistantResponseCache cache = new AssistantResponseCache(new DogOrNotModel(), meterRegistry,
+            true, 0.95, Duration.ofMinutes(30), 10, clock);
+
+    @Test
+    void aSimilarQuestionWithTheSameConstraintsIsAnsweredFromTheCache() {
+        assertThat(ask("Small dogs in Tokyo under $300?")).isEqualTo("answer 1");
+        assertThat(ask("any small dog in tokyo for under $300")).isEqualTo("answer 1");
+
+        assertThat(computed).hasValue(1);
+        assertThat(meterRegistry.get("adoptions.assistant.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void aSimilarQuestionWithOtherConstraintsIsAMiss() {
+        assertThat(ask("Small dogs in Tokyo under $300?")).isEqualTo("answer 1");
+        assertThat(ask("Small dogs in Paris under $300?")).isEqualTo("answer 2");
+        assertThat(ask("Large dogs in Tokyo under $300?")).isEqualTo("answer 3");
+        assertThat(ask("Small dogs in Tokyo under $500?")).isEqualTo("answer 4");
+        assertThat(ask("Small dogs in Tokyo")).isEqualTo("answer 5");
+
+        assertThat(computed).hasValue(5);
+        assertThat(cache.size()).isEqualTo(5);
+    }
+
+    @Test
+    void anUnrelatedQuestionIsAMiss() {
+        ask("Which dog is the calmest?");
+        assertThat(ask("What are your opening hours?")).isEqualTo("answer 2");
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        ask("Which dog is the calmest?");
+        clock.advance(Duration.ofMinutes(29));
+        assertThat(ask("Which dog is calmest?")).isEqualTo("answer 1");
+
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(ask("Which dog is calmest?")).isEqualTo("answer 2");
+    }
+
+    @Test
+    void aCatalogChangeDropsEveryAnswer() {
+        ask("Which dog is the calmest?");
+
+        cache.onCatalogChanged(new DogCatalogChangedEvent(1, 0));
+
+        assertThat(cache.size()).isZero();
+        assertThat(ask("Which dog is the calmest?")).isEqualTo("answer 2");
+    }
+
+    @Test
+    void anAnswerComputedAcrossACatalogChangeIsNotStored() {
+        cache.getOrCompute("Which dog is the calmest?", () -> {
+            cache.onCatalogChanged(new DogCatalogChangedEvent(0, 1));
+            return "stale answer";
+        });
+
+        assertThat(cache.size()).isZero();
+        assertThat(ask("Which dog is the calmest?")).isEqualTo("answer 1");
+    }
+
+    @Test
+    void schedulingRequestsBypassTheCache() {
+        ask("Please book an appointment for Prancer");
+        assertThat(ask("Please book an appointment for Prancer")).isEqualTo("answer 2");
+        assertThat(cache.size()).isZero();
+    }
+
+    private String ask(String question) {
+        return cache.getOrCompute(question, () -> "answer " + computed.incrementAndGet());
+    }
+
+    /**
+     * Questions mentioning dogs embed as one vector, everything else as another.
+     */
+    private static final class DogOrNotModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            var embeddings = new ArrayList<Embedding>();
+            for (var text : request.getInstructions()) {
+                var vector = text.toLowerCase().contains("dog") ? new float[] {1, 0} : new float[] {0, 1};
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-05T08:00:00Z").toEpochMilli());
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+}
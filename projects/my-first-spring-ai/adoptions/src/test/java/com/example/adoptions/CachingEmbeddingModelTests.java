@@ -0,0 +1,71 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link CachingEmbeddingModel} over a delegate that records what it was asked to embed.
+ */
+class CachingEmbeddingModelTests {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> embedded = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void documentBatchesAreEmbeddedOnceAndQueriesAreNeverStored() throws Exception {
+        try (var store = new EmbeddingCacheStore(directory)) {
+            var model = new CachingEmbeddingModel(new RecordingModel(), store, "test-model", meterRegistry);
+
+            model.embed(List.of("Prancer, a demonic chihuahua", "Rocket, a calm lab"));
+            var again = model.embed(List.of("Rocket, a calm lab", "Bella, a shy poodle"));
+            assertThat(again.get(0)).containsExactly(18f);
+            assertThat(embedded).containsExactly("Prancer, a demonic chihuahua", "Rocket, a calm lab",
+                    "Bella, a shy poodle");
+            assertThat(store.size()).isEqualTo(3);
+
+            model.embed("which dog is calm?");
+            model.embed("which dog is calm?");
+            assertThat(embedded).endsWith("which dog is calm?", "which dog is calm?");
+            assertThat(store.size()).isEqualTo(3);
+            assertThat(meterRegistry.get("adoptions.embedding.cache").tag("result", "bypass").counter().count())
+                    .isEqualTo(2);
+        }
+    }
+
+    /**
+     * Embeds a text as a one-dimensional vector holding its length.
+     */
+    private final class RecordingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            var embeddings = new ArrayList<Embedding>();
+            for (var text : request.getInstructions()) {
+                embedded.add(text);
+                embeddings.add(new Embedding(new float[] {text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
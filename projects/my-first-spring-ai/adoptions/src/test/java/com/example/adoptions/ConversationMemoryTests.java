@@ -0,0 +1,160 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link ConversationMemory} over an in-memory repository that counts its writes, with a
+ * summarizer that records how many messages it folded.
+ */
+class ConversationMemoryTests {
+
+    private final AtomicInteger saves = new AtomicInteger();
+    private final ChatMemoryRepository repository = new CountingRepository();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConversationMemory memory;
+
+    @AfterEach
+    void stop() {
+        memory.destroy();
+    }
+
+    @Test
+    void turnsAreServedFromMemoryAndWrittenBackInOneBatch() {
+        memory = new ConversationMemory(repository, (summary, turns) -> "unused", meterRegistry, 20, 100,
+                Duration.ofMinutes(30), 50);
+
+        for (int i = 0; i < 5; i++) {
+            memory.add("alice", turn(i));
+            memory.add("bob", turn(i));
+        }
+
+        assertThat(memory.get("alice")).hasSize(10);
+        assertThat(repository.findByConversationId("alice")).isEmpty();
+        assertThat(saves).hasValue(0);
+
+        memory.flush();
+
+        assertThat(saves).hasValue(2);
+        assertThat(repository.findByConversationId("alice")).hasSize(10);
+        assertThat(repository.findByConversationId("bob")).hasSize(10);
+
+        // Nothing changed since, so nothing is written again
+        memory.flush();
+        assertThat(saves).hasValue(2);
+    }
+
+    @Test
+    void idleConversationsAreReloadedFromTheRepository() {
+        memory = new ConversationMemory(repository, (summary, turns) -> "unused", meterRegistry, 20, 100,
+                Duration.ZERO, 50);
+        memory.add("alice", turn(1));
+
+        memory.flush();
+
+        assertThat(memory.sessions()).isZero();
+        assertThat(memory.get("alice")).extracting(Message::getText)
+                .containsExactly("question 1", "answer 1");
+        assertThat(meterRegistry.get("adoptions.memory.loads").tag("source", "repository").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void olderTurnsAreFoldedIntoASummaryAndTheWindowStaysBounded() throws InterruptedException {
+        var summarized = new CountDownLatch(1);
+        var folded = new AtomicInteger();
+        memory = new ConversationMemory(repository, (summary, turns) -> {
+            folded.addAndGet(turns.size());
+            summarized.countDown();
+            return "Alice has a cat and asked about Rocky (id 3).";
+        }, meterRegistry, 6, 100, Duration.ofMinutes(30), 50);
+
+        for (int i = 0; i < 4; i++) {
+            memory.add("alice", turn(i));
+        }
+        // Before the summary is ready, the window alone bounds what the model sees
+        assertThat(memory.get("alice").size()).isLessThanOrEqualTo(7);
+
+        assertThat(summarized.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitCompaction();
+        List<Message> window = memory.get("alice");
+
+        assertThat(folded.get()).isGreaterThanOrEqualTo(2);
+        assertThat(window.get(0)).isInstanceOf(SystemMessage.class);
+        assertThat(window.get(0).getText()).startsWith(ConversationMemory.SUMMARY_PREFIX).contains("Rocky");
+        assertThat(window.get(window.size() - 1).getText()).isEqualTo("answer 3");
+        assertThat(window.size()).isLessThanOrEqualTo(7);
+
+        // The summary survives a reload from the repository
+        memory.flush();
+        var reloaded = new ConversationMemory(repository, (summary, turns) -> "unused", meterRegistry, 6, 100,
+                Duration.ofMinutes(30), 50);
+        assertThat(reloaded.get("alice")).isEqualTo(window);
+        reloaded.destroy();
+    }
+
+    @Test
+    void pendingChangesAreWrittenOnShutdown() {
+        memory = new ConversationMemory(repository, (summary, turns) -> "unused", meterRegistry, 20, 100,
+                Duration.ofMinutes(30), 1);
+        memory.add("alice", turn(1));
+        memory.add("bob", turn(1));
+
+        memory.destroy();
+
+        assertThat(repository.findConversationIds()).containsExactlyInAnyOrder("alice", "bob");
+    }
+
+    private void awaitCompaction() throws InterruptedException {
+        var compactions = meterRegistry.get("adoptions.memory.compactions").tag("result", "success").counter();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (compactions.count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<Message> turn(int i) {
+        return List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i));
+    }
+
+    private class CountingRepository implements ChatMemoryRepository {
+
+        private final InMemoryChatMemoryRepository delegate = new InMemoryChatMemoryRepository();
+
+        @Override
+        public List<String> findConversationIds() {
+            return delegate.findConversationIds();
+        }
+
+        @Override
+        public List<Message> findByConversationId(String conversationId) {
+            return delegate.findByConversationId(conversationId);
+        }
+
+        @Override
+        public void saveAll(String conversationId, List<Message> messages) {
+            saves.incrementAndGet();
+            delegate.saveAll(conversationId, messages);
+        }
+
+        @Override
+        public void deleteByConversationId(String conversationId) {
+            delegate.deleteByConversationId(conversationId);
+        }
+    }
+}
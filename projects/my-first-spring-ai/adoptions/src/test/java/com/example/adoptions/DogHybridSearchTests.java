@@ -0,0 +1,59 @@
+package com.example.adoptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the rank fusion and the filter rendering used by the full-text side of
+ * {@link DogHybridSearch}; the queries themselves need Postgres and the embedding API.
+ */
+class DogHybridSearchTests {
+
+    @Test
+    void dogsFoundByBothSearchesRankFirst() {
+        var fused = DogHybridSearch.fuse(List.of(4, 1, 7), List.of(2, 7, 4), 60);
+
+        assertThat(fused).extracting(DogHybridSearch.Ranked::dogId).containsExactly(4, 7, 2, 1);
+        var first = fused.get(0);
+        assertThat(first.lexicalRank()).isEqualTo(1);
+        assertThat(first.vectorRank()).isEqualTo(3);
+        assertThat(first.score()).isEqualTo(1.0 / 61 + 1.0 / 63);
+        assertThat(fused.get(3).vectorRank()).isNull();
+    }
+
+    @Test
+    void equalScoresAreOrderedByBestRankThenId() {
+        var fused = DogHybridSearch.fuse(List.of(5, 3), List.of(3, 5), 60);
+
+        assertThat(fused).extracting(DogHybridSearch.Ranked::dogId).containsExactly(3, 5);
+        assertThat(DogHybridSearch.fuse(List.of(), List.of(9, 8), 60))
+                .extracting(DogHybridSearch.Ranked::dogId).containsExactly(9, 8);
+    }
+
+    @Test
+    void searchMethodsAreParsedIgnoringCaseAndUnknownOnesRejected() {
+        assertThat(DogHybridSearch.Method.of("Lexical")).isEqualTo(DogHybridSearch.Method.LEXICAL);
+        assertThatThrownBy(() -> DogHybridSearch.Method.of("fuzzy"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fuzzy")
+                .hasMessageContaining("[hybrid, lexical, vector]");
+    }
+
+    @Test
+    void questionConstraintsBecomeParameterizedConditionsOnTheDogTable() {
+        var params = new HashMap<String, Object>();
+
+        var sql = DogQueryFilters.toSql(
+                DogQueryFilters.fromQuestion("small dogs in Tokyo good with cats under $300"), params);
+
+        assertThat(sql).contains("size = :f0", "good_with_cats = :f1", "adoption_fee <= :f2", "location = :f3")
+                .doesNotContain("Tokyo");
+        assertThat(params).containsEntry("f0", "SMALL").containsEntry("f1", true)
+                .containsEntry("f2", 300.0).containsEntry("f3", "Tokyo");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.adoptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the field selection, the SQL and the paging of {@link DogListing} without a database.
+ */
+class DogListingTests {
+
+    @Test
+    void requestedFieldsAlwaysIncludeTheId() {
+        assertThat(DogListing.columns(List.of("name", " breed", "name")))
+                .extracting(DogListing.Column::name)
+                .containsExactly("id", "name", "breed");
+        assertThat(DogListing.columns(List.of("goodWithCats")))
+                .extracting(DogListing.Column::name)
+                .containsExactly("id", "good_with_cats");
+        assertThat(DogListing.columns(List.of())).hasSize(DogListing.FIELDS.size());
+        assertThat(DogListing.columns(null)).hasSize(DogListing.FIELDS.size());
+    }
+
+    @Test
+    void unknownFieldsAreRejected() {
+        assertThatThrownBy(() -> DogListing.columns(List.of("name", "password")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'password'");
+    }
+
+    @Test
+    void filtersBecomeParameterizedConditions() {
+        var params = new HashMap<String, Object>();
+        var filter = new DogListing.Filter(40, "Poodle", "SMALL", "Tokyo", new BigDecimal("50"), new BigDecimal("300"));
+
+        var sql = DogListingImpl.select(DogListing.columns(List.of("name")), filter, params);
+
+        assertThat(sql).isEqualTo("select id, name from dog where id > :after and breed = :breed and size = :size"
+                + " and location = :location and adoption_fee >= :minFee and adoption_fee <= :maxFee order by id");
+        assertThat(params).containsOnly(
+                Map.entry("after", 40), Map.entry("breed", "Poodle"), Map.entry("size", "SMALL"),
+                Map.entry("location", "Tokyo"), Map.entry("minFee", new BigDecimal("50")),
+                Map.entry("maxFee", new BigDecimal("300")));
+    }
+
+    @Test
+    void sizeIsMatchedInAnyCaseAndUnknownSizesAreRejected() {
+        assertThat(new DogListing.Filter(null, null, "small", null, null, null).size()).isEqualTo("SMALL");
+        assertThat(new DogListing.Filter(null, null, " Extra-large ", null, null, null).size()).isEqualTo("EXTRA_LARGE");
+        assertThat(new DogListing.Filter(null, null, "extra large", null, null, null).size()).isEqualTo("EXTRA_LARGE");
+        assertThat(new DogListing.Filter(null, null, " ", null, null, null).size()).isNull();
+        assertThatThrownBy(() -> new DogListing.Filter(null, null, "tiny", null, null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'TINY'");
+    }
+
+    @Test
+    void noFilterSelectsEveryDogInIdOrder() {
+        var params = new HashMap<String, Object>();
+
+        var sql = DogListingImpl.select(DogListing.columns(List.of("size")),
+                new DogListing.Filter(null, null, null, null, null, null), params);
+
+        assertThat(sql).isEqualTo("select id, size from dog order by id");
+        assertThat(params).isEmpty();
+    }
+
+    @Test
+    void nextIsSetOnlyWhenMoreRowsCameBackThanThePageHolds() {
+        var full = DogListingImpl.page(dogs(11, 12, 13, 14), 3);
+        assertThat(full.dogs()).extracting(dog -> dog.get("id")).containsExactly(11, 12, 13);
+        assertThat(full.next()).isEqualTo(13);
+
+        var last = DogListingImpl.page(dogs(11, 12, 13), 3);
+        assertThat(last.dogs()).hasSize(3);
+        assertThat(last.next()).isNull();
+
+        assertThat(DogListingImpl.page(dogs(), 3).next()).isNull();
+    }
+
+    private static List<Map<String, Object>> dogs(int... ids) {
+        return IntStream.of(ids).<Map<String, Object>>mapToObj(id -> Map.of("id", id, "name", "dog " + id)).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.adoptions;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks which phrases of a question {@link DogQueryFilters} turns into hard constraints.
+ */
+class DogQueryFiltersTests {
+
+    private final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+    @Test
+    void askingWhetherTheAgencyHasDogsIsNotACompatibilityConstraint() {
+        assertThat(DogQueryFilters.fromQuestion("Do you have small dogs?"))
+                .isEqualTo(b.eq(DogDocuments.SIZE, "SMALL").build());
+        assertThat(DogQueryFilters.fromQuestion("do you have dogs under $300"))
+                .isEqualTo(b.lte(DogDocuments.ADOPTION_FEE, 300.0).build());
+        assertThat(DogQueryFilters.fromQuestion("Which dog has a calm temperament?")).isNull();
+    }
+
+    @Test
+    void whatTheUserLivesWithIsAConstraint() {
+        assertThat(DogQueryFilters.fromQuestion("I have a cat, which dog would suit me?"))
+                .isEqualTo(b.eq(DogDocuments.GOOD_WITH_CATS, true).build());
+        assertThat(DogQueryFilters.fromQuestion("We live with two kids"))
+                .isEqualTo(b.eq(DogDocuments.GOOD_WITH_KIDS, true).build());
+        assertThat(DogQueryFilters.fromQuestion("a dog that is good with other dogs"))
+                .isEqualTo(b.eq(DogDocuments.GOOD_WITH_DOGS, true).build());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.adoptions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes vectors to an {@link EmbeddingCacheStore} in a temporary directory and opens it again,
+ * as after a restart or a crash.
+ */
+class EmbeddingCacheStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void vectorsSurviveAReopen() throws IOException {
+        try (var store = new EmbeddingCacheStore(directory)) {
+            store.put(key(1), new float[] {0.1f, 0.2f, 0.3f});
+            store.put(key(2), new float[] {1f, -1f});
+            store.put(key(1), new float[] {9f, 9f, 9f});
+            assertThat(store.get(key(3))).isNull();
+        }
+
+        try (var store = new EmbeddingCacheStore(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.get(key(1))).containsExactly(0.1f, 0.2f, 0.3f);
+            assertThat(store.get(key(2))).containsExactly(1f, -1f);
+
+            // New vectors are appended after the reopened ones rather than over them
+            store.put(key(3), new float[] {4f});
+            assertThat(store.get(key(1))).containsExactly(0.1f, 0.2f, 0.3f);
+            assertThat(store.get(key(3))).containsExactly(4f);
+        }
+    }
+
+    @Test
+    void tornTrailingIndexRecordIsDropped() throws IOException {
+        try (var store = new EmbeddingCacheStore(directory)) {
+            store.put(key(1), new float[] {0.5f, 0.25f});
+        }
+        var index = directory.resolve("embeddings.idx");
+        long intact = Files.size(index);
+        // Half a record, as left by a crash in the middle of an append
+        Files.write(index, Arrays.copyOf(key(2), EmbeddingCacheStore.KEY_BYTES / 2), StandardOpenOption.APPEND);
+
+        try (var store = new EmbeddingCacheStore(directory)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(Files.size(index)).isEqualTo(intact);
+            assertThat(store.get(key(1))).containsExactly(0.5f, 0.25f);
+            store.put(key(2), new float[] {2f});
+        }
+
+        try (var store = new EmbeddingCacheStore(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.get(key(2))).containsExactly(2f);
+        }
+    }
+
+    private static byte[] key(int n) {
+        var key = new byte[EmbeddingCacheStore.KEY_BYTES];
+        Arrays.fill(key, (byte) n);
+        return key;
+    }
+}
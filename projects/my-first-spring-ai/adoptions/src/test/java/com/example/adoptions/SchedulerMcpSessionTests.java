@@ -0,0 +1,189 @@
+package com.example.adoptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs {@link SchedulerMcpSession} against an in-process MCP server that publishes the
+ * scheduler's {@code scheduleAppointment} tool over SSE on an embedded Tomcat.
+ */
+class SchedulerMcpSessionTests {
+
+    private static final String INPUT_SCHEMA = """
+            {"type":"object","properties":{"dogId":{"type":"integer"},"dogName":{"type":"string"},"requestedBy":{"type":"string"}},"required":["dogId","dogName"]}
+            """;
+
+    @TempDir
+    Path baseDir;
+
+    private final AtomicInteger bookings = new AtomicInteger();
+    private final List<String> requestedBy = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Tomcat tomcat;
+    private McpSyncServer server;
+    private int port;
+    private SchedulerMcpSession session;
+
+    @BeforeEach
+    void startScheduler() throws LifecycleException {
+        startScheduler(0);
+        port = tomcat.getConnector().getLocalPort();
+        session = new SchedulerMcpSession(meterRegistry, "http://localhost:" + port, "/sse",
+                Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofMillis(200),
+                Duration.ofMillis(100), Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void stopScheduler() throws LifecycleException {
+        session.destroy();
+        stopSchedulerServer();
+    }
+
+    @Test
+    void discoversToolsOnceAndReusesTheSession() {
+        session.connect();
+
+        var tools = session.getToolCallbacks();
+        assertThat(tools).hasSize(1);
+        assertThat(tools[0].getToolDefinition().name()).isEqualTo("scheduleAppointment");
+        assertThat(tools[0].getToolDefinition().inputSchema()).contains("dogId", "dogName");
+
+        for (int i = 1; i <= 5; i++) {
+            var reply = session.getToolCallbacks()[0].call("{\"dogId\":" + i + ",\"dogName\":\"Prancer\"}");
+            assertThat(reply).contains("Appointment scheduled for Prancer");
+        }
+
+        assertThat(bookings).hasValue(5);
+        assertThat(meterRegistry.get("adoptions.mcp.session.connects").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("adoptions.mcp.tools.listings").counter().count()).isEqualTo(1);
+        var latency = meterRegistry.get("adoptions.mcp.tool.call")
+                .tags("tool", "scheduleAppointment", "outcome", "success")
+                .timer();
+        assertThat(latency.count()).isEqualTo(5);
+    }
+
+    @Test
+    void reconnectsAfterSchedulerRestartWithoutRefetchingTools() throws Exception {
+        session.connect();
+        var tool = session.getToolCallbacks()[0];
+        assertThat(tool.call("{\"dogId\":1,\"dogName\":\"Prancer\"}")).contains("Prancer");
+
+        stopSchedulerServer();
+        startScheduler(port);
+        awaitConnects(2);
+
+        // The callback handed out before the restart still works on the new session
+        assertThat(tool.call("{\"dogId\":2,\"dogName\":\"Rocket\"}")).contains("Rocket");
+        assertThat(bookings).hasValue(2);
+        assertThat(meterRegistry.get("adoptions.mcp.tools.listings").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failsFastWhileTheSchedulerIsDownAndReconnectsInTheBackground() throws Exception {
+        session.connect();
+        var tool = session.getToolCallbacks()[0];
+
+        stopSchedulerServer();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (session.isConnected() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(session.isConnected()).isFalse();
+
+        assertThatThrownBy(() -> tool.call("{\"dogId\":1,\"dogName\":\"Prancer\"}"))
+                .isInstanceOf(ToolExecutionException.class)
+                .hasRootCauseMessage("scheduler unavailable");
+        assertThat(meterRegistry.get("adoptions.mcp.tool.call").tag("outcome", "unavailable").timer().count())
+                .isEqualTo(1);
+
+        startScheduler(port);
+        awaitConnects(2);
+        assertThat(tool.call("{\"dogId\":2,\"dogName\":\"Rocket\"}")).contains("Rocket");
+    }
+
+    @Test
+    void passesTheUserFromTheToolContextAsRequestedBy() {
+        session.connect();
+        var tool = session.getToolCallbacks()[0];
+
+        tool.call("{\"dogId\":1,\"dogName\":\"Prancer\"}",
+                new ToolContext(Map.of(SchedulerMcpSession.USER_CONTEXT_KEY, "josh")));
+        tool.call("{\"dogId\":2,\"dogName\":\"Rocket\"}");
+
+        assertThat(requestedBy).containsExactly("josh", "null");
+    }
+
+    private void awaitConnects(int expected) throws InterruptedException {
+        var connects = meterRegistry.get("adoptions.mcp.session.connects").counter();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while ((connects.count() < expected || !session.isConnected()) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(connects.count()).isEqualTo(expected);
+    }
+
+    private void startScheduler(int requestedPort) throws LifecycleException {
+        var transport = HttpServletSseServerTransportProvider.builder()
+                .messageEndpoint("/mcp/v1/messages")
+                .sseEndpoint("/sse")
+                .build();
+        var tool = McpSchema.Tool.builder()
+                .name("scheduleAppointment")
+                .description("Schedules a dog adoption appointment")
+                .inputSchema(McpJsonMapper.getDefault(), INPUT_SCHEMA)
+                .build();
+        server = McpServer.sync(transport)
+                .serverInfo("scheduler-mcp-server", "1.0.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build())
+                .tools(McpServerFeatures.SyncToolSpecification.builder()
+                        .tool(tool)
+                        .callHandler((exchange, request) -> {
+                            bookings.incrementAndGet();
+                            requestedBy.add(String.valueOf(request.arguments().get("requestedBy")));
+                            var text = "{\"success\":true,\"message\":\"Appointment scheduled for "
+                                    + request.arguments().get("dogName") + "\"}";
+                            return McpSchema.CallToolResult.builder().addTextContent(text).isError(false).build();
+                        })
+                        .build())
+                .build();
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(requestedPort);
+        var context = tomcat.addContext("", null);
+        var servlet = Tomcat.addServlet(context, "mcp", transport);
+        servlet.setAsyncSupported(true);
+        context.addServletMappingDecoded("/*", "mcp");
+        tomcat.getConnector();
+        tomcat.start();
+    }
+
+    private void stopSchedulerServer() throws LifecycleException {
+        server.closeGracefully();
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
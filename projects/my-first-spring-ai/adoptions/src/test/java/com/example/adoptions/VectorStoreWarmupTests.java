@@ -0,0 +1,92 @@
+package com.example.adoptions;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link VectorStoreWarmup} with a sync that embeds in two batches and can be made to fail
+ * or to wait, so each phase can be observed.
+ */
+class VectorStoreWarmupTests {
+
+    private final CountDownLatch firstBatch = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private VectorStoreWarmup warmup;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        warmup.destroy();
+    }
+
+    @Test
+    void isOutOfServiceWithProgressUntilTheFirstSyncCompletes() throws InterruptedException {
+        warmup = new VectorStoreWarmup(this::sync, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(warmup.health().getDetails()).containsEntry("phase", VectorStoreWarmup.Phase.PENDING);
+
+        warmup.start();
+        assertThat(firstBatch.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(warmup.isReady()).isFalse();
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(warmup.health().getDetails())
+                .containsEntry("phase", VectorStoreWarmup.Phase.INDEXING)
+                .containsEntry("embedded", 50)
+                .containsEntry("planned", 100);
+
+        release.countDown();
+        awaitReady();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmup.health().getDetails()).containsEntry("upserted", 100);
+    }
+
+    @Test
+    void retriesAFailedSyncWithBackoff() throws InterruptedException {
+        failuresLeft.set(2);
+        release.countDown();
+        warmup = new VectorStoreWarmup(this::sync, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        warmup.start();
+        awaitReady();
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(failuresLeft).hasValue(0);
+    }
+
+    private DogVectorIndexer.IndexResult sync(DogVectorIndexer.Progress progress) {
+        if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new IllegalStateException("embedding API unavailable");
+        }
+        progress.planned(100);
+        progress.committed(50);
+        firstBatch.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        progress.committed(50);
+        return new DogVectorIndexer.IndexResult(100, 0, 0, LocalDateTime.now(), 5);
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!warmup.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(warmup.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.scheduler;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A booked appointment as stored in the {@link AppointmentJournal}. The location is the
+ * normalized key used by {@link SlotAllocator}.
+ */
+public record Appointment(UUID id, int dogId, String dogName, String location, OffsetDateTime start) {
+
+    SlotAllocator.Reservation reservation() {
+        return new SlotAllocator.Reservation(id, dogId, location, start);
+    }
+}
@@ -0,0 +1,548 @@
+package com.example.scheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Durable store of booked appointments: an append-only, checksummed journal on memory-mapped
+ * segment files, plus periodic snapshots.
+ * <p>
+ * A record is its payload length (int), the CRC32 of the payload (int) and the payload. Segments
+ * are pre-sized and zero-filled, so a zero length marks the end of the written part. Appends are
+ * serialized by a lock and only copy bytes into the mapping. A flusher thread forces the new bytes
+ * to disk and then wakes every caller whose record is now durable, so bookings that arrive while
+ * one fsync runs share the next one (group commit).
+ * <p>
+ * Every {@code snapshotEvery} records the journal rolls to a new segment, writes the live
+ * appointments to {@code snapshot.bin} and deletes the segments the snapshot covers. On startup
+ * the snapshot is loaded and the remaining segments are replayed. Replay of a segment stops at the
+ * first record whose checksum does not match, which is where a crash interrupted a write.
+ */
+@Component
+public class AppointmentJournal implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentJournal.class);
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MAX_TEXT_BYTES = 1024;
+    private static final byte BOOKED = 1;
+    private static final int SNAPSHOT_MAGIC = 0x41505054;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.log");
+
+    private record Segment(long index, FileChannel channel, MappedByteBuffer buffer) {
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int snapshotEvery;
+    private final Map<UUID, Appointment> appointments = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    // Guarded by lock
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment current;
+    private int offset;
+    private long written;
+    private long durable;
+    private int sinceSnapshot;
+    private RuntimeException failure;
+    private boolean closed;
+    private long fsyncs;
+    private long records;
+
+    private final Thread flusher;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "appointment-journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    public AppointmentJournal(
+            @Value("${scheduler.journal.directory:data/journal}") Path directory,
+            @Value("${scheduler.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${scheduler.journal.snapshot-every:100000}") int snapshotEvery
+    ) {
+        this.directory = directory;
+        this.segmentBytes = (int) Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.snapshotEvery = snapshotEvery;
+
+        long startTime = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            long firstSegment = loadSnapshot();
+            replaySegments(firstSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open appointment journal in " + directory, e);
+        }
+        log.info("Appointment journal recovered {} appointments from {} in {}ms", appointments.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        this.flusher = new Thread(this::flushLoop, "appointment-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends the appointments and blocks until they are on disk.
+     */
+    public void commit(List<Appointment> batch) {
+        awaitDurable(append(batch));
+    }
+
+    /**
+     * Appends the appointments without waiting for the fsync and returns the journal position to
+     * pass to {@link #awaitDurable(long)}.
+     */
+    public long append(List<Appointment> batch) {
+        // Encode and checksum outside the lock; the critical section is only the copy
+        var frames = batch.stream().map(appointment -> frame(encode(appointment))).toList();
+        long position;
+        boolean snapshotDue;
+        lock.lock();
+        try {
+            ensureWritable();
+            for (int i = 0; i < frames.size(); i++) {
+                var frame = frames.get(i);
+                if (offset + frame.length > current.buffer().capacity()) {
+                    roll();
+                }
+                current.buffer().put(offset, frame);
+                offset += frame.length;
+                appointments.put(batch.get(i).id(), batch.get(i));
+            }
+            written = position(current.index(), offset);
+            records += frames.size();
+            sinceSnapshot += frames.size();
+            snapshotDue = sinceSnapshot >= snapshotEvery;
+            position = written;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (snapshotDue && snapshotRunning.compareAndSet(false, true)) {
+            snapshotter.execute(() -> {
+                try {
+                    snapshot();
+                } catch (RuntimeException e) {
+                    log.error("Appointment journal snapshot failed", e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        }
+        return position;
+    }
+
+    public void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (closed) {
+                    throw new IllegalStateException("Appointment journal is closed");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Collection<Appointment> appointments() {
+        return List.copyOf(appointments.values());
+    }
+
+    /**
+     * Writes the live appointments to a new snapshot and deletes the segments it replaces.
+     * Appointments that have already started are left out.
+     */
+    void snapshot() {
+        long coveredBefore;
+        List<Appointment> state;
+        lock.lock();
+        try {
+            ensureWritable();
+            roll();
+            coveredBefore = current.index();
+            var now = OffsetDateTime.now(ZoneOffset.UTC);
+            appointments.values().removeIf(appointment -> appointment.start().isBefore(now));
+            state = new ArrayList<>(appointments.values());
+            sinceSnapshot = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            writeSnapshot(coveredBefore, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write appointment journal snapshot", e);
+        }
+
+        var obsolete = new ArrayList<Segment>();
+        lock.lock();
+        try {
+            segments.removeIf(segment -> segment.index() < coveredBefore && obsolete.add(segment));
+        } finally {
+            lock.unlock();
+        }
+        for (var segment : obsolete) {
+            try {
+                segment.channel().close();
+                Files.deleteIfExists(segmentPath(segment.index()));
+            } catch (IOException e) {
+                log.warn("Could not delete journal segment {}: {}", segment.index(), e.getMessage());
+            }
+        }
+        log.info("Appointment journal snapshot of {} appointments written in {}ms, {} segments truncated",
+                state.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), obsolete.size());
+    }
+
+    long fsyncCount() {
+        lock.lock();
+        try {
+            return fsyncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long recordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pending.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        snapshotter.shutdown();
+        snapshotter.awaitTermination(30, TimeUnit.SECONDS);
+        // The flusher writes out whatever is still pending before it exits
+        flusher.join();
+        lock.lock();
+        try {
+            for (var segment : segments) {
+                segment.channel().close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long target;
+            long from;
+            List<Segment> dirty;
+            lock.lock();
+            try {
+                while (!closed && written == durable) {
+                    pending.awaitUninterruptibly();
+                }
+                if (written == durable || failure != null) {
+                    return;
+                }
+                target = written;
+                from = durable;
+                dirty = segments.stream()
+                        .filter(segment -> segment.index() >= segmentIndex(from) && segment.index() <= segmentIndex(target))
+                        .toList();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException error = null;
+            try {
+                for (var segment : dirty) {
+                    int start = segment.index() == segmentIndex(from) ? segmentOffset(from) : 0;
+                    int end = segment.index() == segmentIndex(target) ? segmentOffset(target) : segment.buffer().capacity();
+                    segment.buffer().force(start, end - start);
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    log.error("Appointment journal fsync failed, refusing further writes", error);
+                    failure = error;
+                } else {
+                    durable = target;
+                    fsyncs++;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void ensureWritable() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IllegalStateException("Appointment journal is closed");
+        }
+    }
+
+    // Called with the lock held
+    private void roll() {
+        try {
+            current = openSegment(current.index() + 1);
+        } catch (IOException e) {
+            failure = new UncheckedIOException("Could not create journal segment " + (current.index() + 1), e);
+            flushed.signalAll();
+            throw failure;
+        }
+        segments.add(current);
+        offset = 0;
+    }
+
+    private Segment openSegment(long index) throws IOException {
+        var channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() > 0 ? channel.size() : segmentBytes;
+        return new Segment(index, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("segment-%010d.log", index));
+    }
+
+    private long loadSnapshot() throws IOException {
+        var file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Not an appointment journal snapshot: " + file);
+            }
+            long coveredBefore = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var payload = new byte[in.readInt()];
+                int checksum = in.readInt();
+                in.readFully(payload);
+                var crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IllegalStateException("Corrupt appointment journal snapshot " + file + " at entry " + i);
+                }
+                var appointment = decode(ByteBuffer.wrap(payload));
+                appointments.put(appointment.id(), appointment);
+            }
+            return coveredBefore;
+        }
+    }
+
+    private void writeSnapshot(long coveredBefore, List<Appointment> state) throws IOException {
+        var temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (var channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(coveredBefore);
+            out.writeInt(state.size());
+            for (var appointment : state) {
+                out.write(frame(encode(appointment)));
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (var dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private void replaySegments(long firstSegment) throws IOException {
+        List<Long> indexes;
+        try (Stream<Path> files = Files.list(directory)) {
+            indexes = files
+                    .map(path -> SEGMENT_FILE.matcher(path.getFileName().toString()))
+                    .filter(matcher -> matcher.matches())
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+        for (long index : indexes) {
+            if (index < firstSegment) {
+                // Left behind by a snapshot that was interrupted before truncating
+                Files.deleteIfExists(segmentPath(index));
+                continue;
+            }
+            var segment = openSegment(index);
+            segments.add(segment);
+            current = segment;
+            offset = replay(segment);
+        }
+        if (current == null) {
+            current = openSegment(firstSegment);
+            segments.add(current);
+            offset = 0;
+        }
+        written = position(current.index(), offset);
+        durable = written;
+    }
+
+    /**
+     * Applies every intact record of the segment and returns the offset after the last one.
+     */
+    private int replay(Segment segment) {
+        var buffer = segment.buffer();
+        int position = 0;
+        var crc = new CRC32();
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                return position;
+            }
+            if (length < 0 || length > buffer.capacity() - position - HEADER_BYTES) {
+                break;
+            }
+            var payload = buffer.slice(position + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            var appointment = decode(payload);
+            appointments.put(appointment.id(), appointment);
+            position += HEADER_BYTES + length;
+        }
+        if (position + HEADER_BYTES <= buffer.capacity()) {
+            log.warn("Appointment journal segment {} has a torn record at offset {}, discarding the rest",
+                    segment.index(), position);
+            // Clear the torn bytes so records appended from here on are read back correctly
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return position;
+    }
+
+    private static byte[] frame(byte[] payload) {
+        var crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] encode(Appointment appointment) {
+        var location = text(appointment.location());
+        var dogName = text(appointment.dogName());
+        return ByteBuffer.allocate(1 + 2 * Long.BYTES + Integer.BYTES + Long.BYTES
+                        + Short.BYTES + location.length + Short.BYTES + dogName.length)
+                .put(BOOKED)
+                .putLong(appointment.id().getMostSignificantBits())
+                .putLong(appointment.id().getLeastSignificantBits())
+                .putInt(appointment.dogId())
+                .putLong(appointment.start().toEpochSecond())
+                .putShort((short) location.length).put(location)
+                .putShort((short) dogName.length).put(dogName)
+                .array();
+    }
+
+    private static Appointment decode(ByteBuffer payload) {
+        byte type = payload.get();
+        if (type != BOOKED) {
+            throw new IllegalStateException("Unknown appointment journal record type " + type);
+        }
+        var id = new UUID(payload.getLong(), payload.getLong());
+        int dogId = payload.getInt();
+        var start = OffsetDateTime.ofInstant(Instant.ofEpochSecond(payload.getLong()), ZoneOffset.UTC);
+        var location = readText(payload);
+        var dogName = readText(payload);
+        return new Appointment(id, dogId, dogName, location, start);
+    }
+
+    private static byte[] text(String value) {
+        var bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Text longer than " + MAX_TEXT_BYTES + " bytes: " + value);
+        }
+        return bytes;
+    }
+
+    private static String readText(ByteBuffer payload) {
+        var bytes = new byte[payload.getShort()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long position(long segmentIndex, int segmentOffset) {
+        return (segmentIndex << 32) | segmentOffset;
+    }
+
+    private static long segmentIndex(long position) {
+        return position >>> 32;
+    }
+
+    private static int segmentOffset(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the result of every booking by idempotency key, so a repeated tool call or a client
+ * retry gets the original response instead of a second appointment.
+ * <p>
+ * Entries are futures: a duplicate that arrives while the first request is still booking waits
+ * for its result rather than booking again. Only results that pass the {@code cacheable} check are
+ * kept; anything else is dropped once it completes, so a failed booking can be retried with the
+ * same key. Entries expire after {@code ttl}, and the oldest are evicted once more than
+ * {@code maxEntries} are held. Since every entry lives equally long, insertion order is also
+ * expiry order, and a queue of keys is enough to find both.
+ * <p>
+ * Hits and misses are counted as {@code scheduler.idempotency.requests} and the number of held
+ * entries is published as {@code scheduler.idempotency.entries}.
+ */
+@Component
+public class IdempotencyCache {
+
+    private record Entry(CompletableFuture<Object> result, long expiresAt) {
+    }
+
+    private record Expiry(String key, Entry entry) {
+    }
+
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Expiry> expiries = new ConcurrentLinkedQueue<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public IdempotencyCache(
+            @Value("${scheduler.idempotency.ttl:PT10M}") Duration ttl,
+            @Value("${scheduler.idempotency.max-entries:10000}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        this(ttl, maxEntries, meterRegistry, Clock.systemUTC());
+    }
+
+    IdempotencyCache(Duration ttl, int maxEntries, MeterRegistry meterRegistry, Clock clock) {
+        if (maxEntries <= 0 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Idempotency cache needs a positive ttl and max-entries");
+        }
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.hits = Counter.builder("scheduler.idempotency.requests")
+                .description("Booking requests answered from the idempotency cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("scheduler.idempotency.requests")
+                .description("Booking requests that did the booking")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("scheduler.idempotency.entries", entries, Map::size)
+                .description("Booking results held for deduplication")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the result stored under the key, waiting for it if the same key is being booked
+     * right now, or runs {@code booking} and stores its result if it is {@code cacheable}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrBook(String key, Supplier<T> booking, Predicate<T> cacheable) {
+        long now = clock.millis();
+        while (true) {
+            var existing = entries.get(key);
+            if (existing != null && existing.expiresAt() <= now) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (existing != null) {
+                hits.increment();
+                return (T) join(existing.result());
+            }
+            var entry = new Entry(new CompletableFuture<>(), now + ttl.toMillis());
+            if (entries.putIfAbsent(key, entry) != null) {
+                continue;
+            }
+            misses.increment();
+            expiries.add(new Expiry(key, entry));
+            evict(now);
+            return book(key, entry, booking, cacheable);
+        }
+    }
+
+    long hitCount() {
+        return (long) hits.count();
+    }
+
+    long missCount() {
+        return (long) misses.count();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private <T> T book(String key, Entry entry, Supplier<T> booking, Predicate<T> cacheable) {
+        T result;
+        try {
+            result = booking.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+        if (!cacheable.test(result)) {
+            entries.remove(key, entry);
+        }
+        entry.result().complete(result);
+        return result;
+    }
+
+    private void evict(long now) {
+        for (var head = expiries.peek(); head != null; head = expiries.peek()) {
+            if (head.entry().expiresAt() > now && entries.size() <= maxEntries) {
+                return;
+            }
+            if (expiries.remove(head)) {
+                entries.remove(head.key(), head.entry());
+            }
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
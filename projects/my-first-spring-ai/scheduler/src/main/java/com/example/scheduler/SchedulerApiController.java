@@ -6,6 +6,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.scheduler.api.controller.SchedulerApi;
+import com.example.scheduler.api.model.BatchScheduleRequest;
+import com.example.scheduler.api.model.BatchScheduleResponse;
 import com.example.scheduler.api.model.ScheduleRequest;
 import com.example.scheduler.api.model.ScheduleResponse;
 
@@ -20,12 +22,26 @@ public class SchedulerApiController implements SchedulerApi {
     }
 
     @Override
-    public ResponseEntity<ScheduleResponse> scheduleAppointment(ScheduleRequest scheduleRequest) {
+    public ResponseEntity<ScheduleResponse> scheduleAppointment(ScheduleRequest scheduleRequest, String idempotencyKey) {
         log.info("=== SCHEDULER API - HTTP REQUEST RECEIVED ===");
         log.info("Endpoint: /schedule (POST)");
         log.info("Request Body: {}", scheduleRequest);
+        log.info("Idempotency-Key: {}", idempotencyKey);
         
-        ScheduleResponse response = this.schedulerService.scheduleAppointment(scheduleRequest);
+        ScheduleResponse response = this.schedulerService.scheduleAppointment(scheduleRequest, idempotencyKey);
+
+        log.info("=== SCHEDULER API - HTTP RESPONSE SENT ===");
+        return ResponseEntity.ok(response);
+    }
+
+    @Override
+    public ResponseEntity<BatchScheduleResponse> scheduleAppointments(BatchScheduleRequest batchScheduleRequest, String idempotencyKey) {
+        log.info("=== SCHEDULER API - HTTP REQUEST RECEIVED ===");
+        log.info("Endpoint: /schedule/batch (POST)");
+        log.info("Request Body: {}", batchScheduleRequest);
+        log.info("Idempotency-Key: {}", idempotencyKey);
+
+        BatchScheduleResponse response = this.schedulerService.scheduleAppointments(batchScheduleRequest, idempotencyKey);
 
         log.info("=== SCHEDULER API - HTTP RESPONSE SENT ===");
         return ResponseEntity.ok(response);
@@ -1,44 +1,226 @@
 package com.example.scheduler;
 
+import com.example.scheduler.api.model.BatchScheduleRequest;
+import com.example.scheduler.api.model.BatchScheduleResponse;
 import com.example.scheduler.api.model.ScheduleRequest;
 import com.example.scheduler.api.model.ScheduleResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 public class SchedulerService {
 
     private static final Logger log = LoggerFactory.getLogger(SchedulerService.class);
 
+    // Same bound as BatchScheduleRequest.appointments in the API spec, also enforced for tool calls
+    static final int MAX_BATCH_SIZE = 10;
+
+    private final SlotAllocator slotAllocator;
+    private final AppointmentJournal journal;
+    private final IdempotencyCache idempotencyCache;
+
+    public SchedulerService(SlotAllocator slotAllocator, AppointmentJournal journal, IdempotencyCache idempotencyCache) {
+        this.slotAllocator = slotAllocator;
+        this.journal = journal;
+        this.idempotencyCache = idempotencyCache;
+
+        // Rebuild slot occupancy from the appointments recovered by the journal
+        var appointments = journal.appointments();
+        appointments.forEach(appointment -> slotAllocator.restore(appointment.reservation()));
+        log.info("Restored {} booked slots from the appointment journal", appointments.size());
+    }
+
     public ScheduleResponse scheduleAppointment(ScheduleRequest scheduleRequest) {
+        return scheduleAppointment(scheduleRequest, null);
+    }
+
+    /**
+     * Books an appointment once per idempotency key: a repeated request gets the original
+     * confirmation for as long as the idempotency cache keeps it. The key comes from the
+     * {@code Idempotency-Key} header or the request body; without one, it is derived from the
+     * requesting user, dog and location, so a retry within the cache ttl of the first booking is
+     * answered from the cache. Requests with neither a key nor a user are booked every time,
+     * since there is nothing to tell two callers apart.
+     */
+    public ScheduleResponse scheduleAppointment(ScheduleRequest scheduleRequest, String idempotencyKey) {
+        var key = idempotencyKey("schedule", scheduleRequest.getRequestedBy(),
+                firstNonBlank(idempotencyKey, scheduleRequest.getIdempotencyKey()),
+                () -> scheduleRequest.getDogId() + "@" + SlotAllocator.normalize(scheduleRequest.getLocation()));
+        if (key.isEmpty()) {
+            return book(scheduleRequest);
+        }
+        return idempotencyCache.getOrBook(key.get(), () -> book(scheduleRequest), SchedulerService::succeeded);
+    }
+
+    private ScheduleResponse book(ScheduleRequest scheduleRequest) {
         Integer dogIdInt = scheduleRequest.getDogId();
         String dogName = scheduleRequest.getDogName();
+        String location = scheduleRequest.getLocation();
 
         log.info("=== SCHEDULER SERVICE ===");
-        log.info("Scheduling appointment for dog: id={}, name={}", dogIdInt, dogName);
-
-        Instant appointmentInstant = Instant.now().plus(3, ChronoUnit.DAYS);
-        OffsetDateTime appointmentOffsetDateTime = OffsetDateTime.ofInstant(appointmentInstant, ZoneOffset.UTC);
+        log.info("Scheduling appointment for dog: id={}, name={}, location={}", dogIdInt, dogName, location);
 
         ScheduleResponse response = new ScheduleResponse();
-        response.setSuccess(true);
-        response.setAppointmentTime(appointmentOffsetDateTime);
-        response.setAppointmentId(UUID.randomUUID());
         if (dogIdInt != null) {
             response.setDogId(dogIdInt);
         }
         response.setDogName(dogName);
-        response.setMessage("Appointment scheduled for " + dogName + " on " + appointmentOffsetDateTime.toString());
+        response.setLocation(location);
+
+        var reservation = dogIdInt == null ? null : slotAllocator.reserveNextFree(dogIdInt, location).orElse(null);
+        if (reservation == null) {
+            response.setSuccess(false);
+            response.setMessage("No free appointment slot for " + dogName + " in the booking window, please try another location or later");
+            log.info("No free slot: {}", response);
+            log.info("=========================");
+            return response;
+        }
+
+        try {
+            journal.commit(List.of(new Appointment(reservation.appointmentId(), dogIdInt, dogName,
+                    reservation.location(), reservation.start())));
+        } catch (RuntimeException e) {
+            log.error("Could not save appointment for dog {}", dogIdInt, e);
+            slotAllocator.release(reservation);
+            response.setSuccess(false);
+            response.setMessage("Could not save the appointment for " + dogName + ", please try again");
+            log.info("=========================");
+            return response;
+        }
+
+        response.setSuccess(true);
+        response.setAppointmentTime(reservation.start());
+        response.setAppointmentId(reservation.appointmentId());
+        response.setMessage("Appointment scheduled for " + dogName + " on " + reservation.start());
 
         log.info("Appointment scheduled: {}", response);
         log.info("=========================");
         return response;
     }
-} 
\ No newline at end of file
+
+    public BatchScheduleResponse scheduleAppointments(BatchScheduleRequest batchRequest) {
+        return scheduleAppointments(batchRequest, null);
+    }
+
+    /**
+     * Books a batch once per idempotency key, see {@link #scheduleAppointment(ScheduleRequest, String)}.
+     * A derived key covers the set of dogs and locations in the batch.
+     */
+    public BatchScheduleResponse scheduleAppointments(BatchScheduleRequest batchRequest, String idempotencyKey) {
+        var key = idempotencyKey("batch", batchRequest.getRequestedBy(),
+                firstNonBlank(idempotencyKey, batchRequest.getIdempotencyKey()),
+                () -> (batchRequest.getAppointments() == null ? List.<ScheduleRequest>of() : batchRequest.getAppointments())
+                        .stream()
+                        .map(request -> request.getDogId() + "@" + SlotAllocator.normalize(request.getLocation()))
+                        .sorted()
+                        .toList()
+                        .toString());
+        if (key.isEmpty()) {
+            return bookAll(batchRequest);
+        }
+        return idempotencyCache.getOrBook(key.get(), () -> bookAll(batchRequest),
+                response -> Boolean.TRUE.equals(response.getSuccess()));
+    }
+
+    /**
+     * Books every requested appointment or none of them. All slots are reserved first; if any
+     * dog cannot get one, the slots taken so far are released. The whole batch is then written
+     * to the journal in a single commit, so it becomes durable with one fsync.
+     */
+    private BatchScheduleResponse bookAll(BatchScheduleRequest batchRequest) {
+        List<ScheduleRequest> requests = batchRequest.getAppointments() == null ? List.of() : batchRequest.getAppointments();
+
+        log.info("=== SCHEDULER SERVICE (BATCH) ===");
+        log.info("Scheduling {} appointments", requests.size());
+
+        BatchScheduleResponse response = new BatchScheduleResponse();
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            response.setSuccess(false);
+            response.setMessage("A batch must contain between 1 and " + MAX_BATCH_SIZE + " appointments");
+            log.info("Rejected batch: {}", response.getMessage());
+            log.info("=================================");
+            return response;
+        }
+
+        List<SlotAllocator.Reservation> reservations = new ArrayList<>(requests.size());
+        List<Appointment> appointments = new ArrayList<>(requests.size());
+        for (ScheduleRequest request : requests) {
+            var reservation = request.getDogId() == null ? null
+                    : slotAllocator.reserveNextFree(request.getDogId(), request.getLocation()).orElse(null);
+            if (reservation == null) {
+                reservations.forEach(slotAllocator::release);
+                response.setSuccess(false);
+                response.setMessage("No free appointment slot for " + request.getDogName()
+                        + " in the booking window, none of the " + requests.size() + " appointments were scheduled");
+                log.info("No free slot, batch rolled back: {}", response.getMessage());
+                log.info("=================================");
+                return response;
+            }
+            reservations.add(reservation);
+            appointments.add(new Appointment(reservation.appointmentId(), request.getDogId(), request.getDogName(),
+                    reservation.location(), reservation.start()));
+        }
+
+        try {
+            journal.commit(appointments);
+        } catch (RuntimeException e) {
+            log.error("Could not save a batch of {} appointments", appointments.size(), e);
+            reservations.forEach(slotAllocator::release);
+            response.setSuccess(false);
+            response.setMessage("Could not save the appointments, please try again");
+            log.info("=================================");
+            return response;
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            ScheduleRequest request = requests.get(i);
+            var reservation = reservations.get(i);
+            ScheduleResponse confirmation = new ScheduleResponse();
+            confirmation.setSuccess(true);
+            confirmation.setDogId(request.getDogId());
+            confirmation.setDogName(request.getDogName());
+            confirmation.setLocation(request.getLocation());
+            confirmation.setAppointmentTime(reservation.start());
+            confirmation.setAppointmentId(reservation.appointmentId());
+            confirmation.setMessage("Appointment scheduled for " + request.getDogName() + " on " + reservation.start());
+            response.addAppointmentsItem(confirmation);
+        }
+        response.setSuccess(true);
+        response.setMessage("Scheduled " + requests.size() + " appointments");
+
+        log.info("Batch scheduled: {}", response);
+        log.info("=================================");
+        return response;
+    }
+
+    private static boolean succeeded(ScheduleResponse response) {
+        return Boolean.TRUE.equals(response.getSuccess());
+    }
+
+    /**
+     * The explicit key scoped to the user, or a key derived from the request when the user is
+     * known; empty when the request cannot be deduplicated safely.
+     */
+    private static Optional<String> idempotencyKey(String operation, String requestedBy, Optional<String> explicit,
+                                                   Supplier<String> derived) {
+        boolean anonymous = requestedBy == null || requestedBy.isBlank();
+        String user = anonymous ? "anonymous" : requestedBy.trim();
+        if (explicit.isPresent()) {
+            return Optional.of(operation + ":" + user + ":key:" + explicit.get());
+        }
+        return anonymous ? Optional.empty() : Optional.of(operation + ":" + user + ":" + derived.get());
+    }
+
+    private static Optional<String> firstNonBlank(String header, String field) {
+        if (header != null && !header.isBlank()) {
+            return Optional.of(header.trim());
+        }
+        return field == null || field.isBlank() ? Optional.empty() : Optional.of(field.trim());
+    }
+}
@@ -2,16 +2,24 @@ package com.example.scheduler;
 
 import java.util.function.Function;
 
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
 
+import com.example.scheduler.api.model.BatchScheduleRequest;
+import com.example.scheduler.api.model.BatchScheduleResponse;
 import com.example.scheduler.api.model.ScheduleRequest;
 import com.example.scheduler.api.model.ScheduleResponse;
 
 @Configuration
 public class SchedulerToolConfig {
 
+    private static final String SCHEDULE_APPOINTMENT_DESCRIPTION = "Schedules a dog adoption appointment. Requires dogId (integer) and dogName (string); location (string) is the shelter location of the dog and is optional. Pass the same optional idempotencyKey (string) when repeating a call so the dog is not booked twice. Books the earliest free slot at that location and returns a confirmation including appointmentId, dogId, dogName, the scheduled appointmentTime, and a message.";
+
+    private static final String SCHEDULE_APPOINTMENTS_DESCRIPTION = "Schedules adoption appointments for several dogs in one call, e.g. when a user wants to meet more than one dog. Takes appointments, a list of 1 to 10 entries with dogId (integer), dogName (string) and optional location (string), plus an optional idempotencyKey (string) for repeated calls. Either all appointments are booked or none is; returns success, one confirmation per dog with appointmentId and appointmentTime, and a message.";
+
     private final SchedulerService schedulerService;
 
     public SchedulerToolConfig(SchedulerService schedulerService) {
@@ -19,8 +27,29 @@ public class SchedulerToolConfig {
     }
 
     @Bean
-    @Description("Schedules a dog adoption appointment. Requires dogId (integer) and dogName (string). Returns a confirmation including appointmentId, dogId, dogName, the scheduled appointmentTime, and a message.")
+    @Description(SCHEDULE_APPOINTMENT_DESCRIPTION)
     public Function<ScheduleRequest, ScheduleResponse> scheduleAppointment() {
         return this.schedulerService::scheduleAppointment;
     }
+
+    @Bean
+    @Description(SCHEDULE_APPOINTMENTS_DESCRIPTION)
+    public Function<BatchScheduleRequest, BatchScheduleResponse> scheduleAppointments() {
+        return this.schedulerService::scheduleAppointments;
+    }
+
+    // The MCP server publishes ToolCallback beans, not plain functions
+    @Bean
+    public ToolCallbackProvider schedulerTools(Function<ScheduleRequest, ScheduleResponse> scheduleAppointment,
+            Function<BatchScheduleRequest, BatchScheduleResponse> scheduleAppointments) {
+        return ToolCallbackProvider.from(
+                FunctionToolCallback.builder("scheduleAppointment", scheduleAppointment)
+                        .description(SCHEDULE_APPOINTMENT_DESCRIPTION)
+                        .inputType(ScheduleRequest.class)
+                        .build(),
+                FunctionToolCallback.builder("scheduleAppointments", scheduleAppointments)
+                        .description(SCHEDULE_APPOINTMENTS_DESCRIPTION)
+                        .inputType(BatchScheduleRequest.class)
+                        .build());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.example.scheduler;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory appointment slots, tracked per location and day.
+ * <p>
+ * Each location-day is an {@link AtomicIntegerArray} holding the number of appointments booked in
+ * every slot of that day. A slot is reserved by a compare-and-set on its counter, up to the
+ * location's staff capacity, so bookings for different slots or locations never contend on a lock.
+ * A dog can only be in one appointment per slot: the (dog, slot) pair is claimed with
+ * {@code putIfAbsent} after the counter, and the counter is given back if another booking won.
+ * <p>
+ * Bookings always take the earliest slot that still has room. Slots are numbered from the epoch
+ * day, and every location keeps a cursor below which all slots are known to be full, so a booking
+ * does not rescan the days that have already filled up.
+ */
+@Component
+public class SlotAllocator {
+
+    public static final String DEFAULT_LOCATION = "default";
+
+    public record Reservation(UUID appointmentId, int dogId, String location, OffsetDateTime start) {
+    }
+
+    private record DogSlot(int dogId, long slot) {
+    }
+
+    private final class LocationSlots {
+
+        final int capacity;
+        final ConcurrentMap<Long, AtomicIntegerArray> days = new ConcurrentHashMap<>();
+        // Every slot below this one is full; only ever a hint, capacity is enforced by the counters.
+        // Raised after a slot is seen full and re-checked afterwards, lowered after every decrement
+        final AtomicLong firstOpen = new AtomicLong();
+
+        LocationSlots(int capacity) {
+            this.capacity = capacity;
+        }
+
+        AtomicIntegerArray day(long epochDay) {
+            return days.computeIfAbsent(epochDay, d -> new AtomicIntegerArray(slotsPerDay));
+        }
+    }
+
+    private final SlotProperties properties;
+    private final Clock clock;
+    private final int slotsPerDay;
+    private final long slotSeconds;
+    private final ConcurrentMap<String, LocationSlots> locations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<DogSlot, UUID> dogSlots = new ConcurrentHashMap<>();
+    private volatile long purgedUpTo = Long.MIN_VALUE;
+
+    @Autowired
+    public SlotAllocator(SlotProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    SlotAllocator(SlotProperties properties, Clock clock) {
+        if (properties.slotsPerDay() <= 0) {
+            throw new IllegalArgumentException("Opening hours must fit at least one slot of " + properties.slotLength());
+        }
+        this.properties = properties;
+        this.clock = clock;
+        this.slotsPerDay = properties.slotsPerDay();
+        this.slotSeconds = properties.slotLength().toSeconds();
+    }
+
+    static String normalize(String location) {
+        return location == null || location.isBlank() ? DEFAULT_LOCATION : location.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reserves the earliest free slot for the dog at the location, or returns empty if every slot
+     * within the booking horizon is full or already holds this dog.
+     */
+    public Optional<Reservation> reserveNextFree(int dogId, String location) {
+        var key = normalize(location);
+        var slots = locations.computeIfAbsent(key, k -> new LocationSlots(properties.staffAt(k)));
+        var now = clock.instant();
+        purgeBefore(now.atOffset(ZoneOffset.UTC).toLocalDate().toEpochDay());
+
+        long earliest = firstSlotAtOrAfter(now.plus(properties.leadTime()));
+        long end = (earliest / slotsPerDay + properties.horizonDays()) * slotsPerDay;
+        long first = Math.max(earliest, slots.firstOpen.get());
+        boolean allFull = true;
+        for (long slot = first; slot < end; slot++) {
+            int index = (int) (slot % slotsPerDay);
+            var day = slots.day(slot / slotsPerDay);
+            if (!tryIncrement(day, index, slots.capacity)) {
+                if (allFull) {
+                    slots.firstOpen.accumulateAndGet(slot + 1, Math::max);
+                    // A release may have lowered the hint between the failed increment and the
+                    // raise above; the counter tells whether that happened
+                    if (day.get(index) < slots.capacity) {
+                        slots.firstOpen.accumulateAndGet(slot, Math::min);
+                    }
+                }
+                continue;
+            }
+            allFull = false;
+            var appointmentId = UUID.randomUUID();
+            if (dogSlots.putIfAbsent(new DogSlot(dogId, slot), appointmentId) != null) {
+                // The dog is already booked in this slot
+                giveBack(slots, day, slot);
+                continue;
+            }
+            return Optional.of(new Reservation(appointmentId, dogId, key, slotStart(slot)));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Gives a reserved slot back, e.g. when a booking it belongs to is rolled back.
+     */
+    public void release(Reservation reservation) {
+        long slot = slotNumber(reservation.start());
+        if (!dogSlots.remove(new DogSlot(reservation.dogId(), slot), reservation.appointmentId())) {
+            return;
+        }
+        var slots = locations.get(reservation.location());
+        var day = slots == null ? null : slots.days.get(slot / slotsPerDay);
+        if (day != null) {
+            giveBack(slots, day, slot);
+        }
+    }
+
+    /**
+     * Puts back a reservation recovered from the journal. Capacity is not checked: what was
+     * booked before a restart stays booked.
+     */
+    public void restore(Reservation reservation) {
+        long slot = slotNumber(reservation.start());
+        if (dogSlots.putIfAbsent(new DogSlot(reservation.dogId(), slot), reservation.appointmentId()) == null) {
+            locations.computeIfAbsent(reservation.location(), k -> new LocationSlots(properties.staffAt(k)))
+                    .day(slot / slotsPerDay)
+                    .incrementAndGet((int) (slot % slotsPerDay));
+        }
+    }
+
+    int bookedAt(String location, OffsetDateTime start) {
+        long slot = slotNumber(start);
+        var slots = locations.get(normalize(location));
+        var day = slots == null ? null : slots.days.get(slot / slotsPerDay);
+        return day == null ? 0 : day.get((int) (slot % slotsPerDay));
+    }
+
+    int capacity(String location) {
+        return properties.staffAt(normalize(location));
+    }
+
+    int slotsPerDay() {
+        return slotsPerDay;
+    }
+
+    /**
+     * Frees one place in the slot and moves the hint back to it. A booking that saw the slot full
+     * and raised the hint afterwards re-reads the counter, so the hint cannot end up past it.
+     */
+    private void giveBack(LocationSlots slots, AtomicIntegerArray day, long slot) {
+        day.decrementAndGet((int) (slot % slotsPerDay));
+        slots.firstOpen.accumulateAndGet(slot, Math::min);
+    }
+
+    private static boolean tryIncrement(AtomicIntegerArray slots, int slot, int capacity) {
+        while (true) {
+            int current = slots.get(slot);
+            if (current >= capacity) {
+                return false;
+            }
+            if (slots.compareAndSet(slot, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private long firstSlotAtOrAfter(Instant instant) {
+        var time = instant.atOffset(ZoneOffset.UTC);
+        long epochDay = time.toLocalDate().toEpochDay();
+        long secondsAfterOpening = time.toLocalTime().toSecondOfDay() - properties.opensAtHour() * 3600L;
+        if (secondsAfterOpening <= 0) {
+            return epochDay * slotsPerDay;
+        }
+        long index = (secondsAfterOpening + slotSeconds - 1) / slotSeconds;
+        return index >= slotsPerDay ? (epochDay + 1) * slotsPerDay : epochDay * slotsPerDay + index;
+    }
+
+    private OffsetDateTime slotStart(long slot) {
+        return LocalDate.ofEpochDay(slot / slotsPerDay)
+                .atTime(properties.opensAtHour(), 0)
+                .plusSeconds(slot % slotsPerDay * slotSeconds)
+                .atOffset(ZoneOffset.UTC);
+    }
+
+    private long slotNumber(OffsetDateTime start) {
+        var utc = start.withOffsetSameInstant(ZoneOffset.UTC);
+        long secondsAfterOpening = utc.toLocalTime().toSecondOfDay() - properties.opensAtHour() * 3600L;
+        return utc.toLocalDate().toEpochDay() * slotsPerDay + secondsAfterOpening / slotSeconds;
+    }
+
+    /**
+     * Drops the counters and dog claims of past days, once per day.
+     */
+    private void purgeBefore(long today) {
+        if (today <= purgedUpTo) {
+            return;
+        }
+        purgedUpTo = today;
+        for (var slots : locations.values()) {
+            slots.days.keySet().removeIf(day -> day < today);
+        }
+        dogSlots.keySet().removeIf(key -> key.slot() < today * slotsPerDay);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.scheduler;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Opening hours, slot length and staffing used by {@link SlotAllocator}. Times are UTC.
+ *
+ * @param opensAtHour    hour of the first slot of the day
+ * @param closesAtHour   hour at which the last slot has ended
+ * @param slotLength     length of one appointment slot
+ * @param horizonDays    how many days ahead appointments can be booked
+ * @param leadTime       minimum time between booking and appointment
+ * @param defaultStaff   appointments a location can run in parallel, unless listed in {@code staff}
+ * @param staff          appointments per slot by location name (lower case)
+ */
+@ConfigurationProperties("scheduler.slots")
+public record SlotProperties(
+        @DefaultValue("10") int opensAtHour,
+        @DefaultValue("18") int closesAtHour,
+        @DefaultValue("PT30M") Duration slotLength,
+        @DefaultValue("14") int horizonDays,
+        @DefaultValue("PT24H") Duration leadTime,
+        @DefaultValue("2") int defaultStaff,
+        Map<String, Integer> staff) {
+
+    public SlotProperties {
+        staff = staff == null ? Map.of() : Map.copyOf(staff);
+    }
+
+    int slotsPerDay() {
+        return (int) (Duration.ofHours(closesAtHour - opensAtHour).toMinutes() / slotLength.toMinutes());
+    }
+
+    int staffAt(String location) {
+        return staff.getOrDefault(location, defaultStaff);
+    }
+}
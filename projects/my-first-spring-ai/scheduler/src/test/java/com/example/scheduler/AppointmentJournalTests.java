@@ -0,0 +1,172 @@
+package com.example.scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppointmentJournalTests {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentJournalTests.class);
+    private static final OffsetDateTime START = OffsetDateTime.now(ZoneOffset.UTC).plusDays(2).withNano(0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysCommittedAppointmentsAfterRestart() throws Exception {
+        var journal = open(DataSize.ofKilobytes(4), 1_000_000);
+        var booked = appointments(200);
+        for (var appointment : booked) {
+            journal.commit(List.of(appointment));
+        }
+        journal.destroy();
+
+        var reopened = open(DataSize.ofKilobytes(4), 1_000_000);
+        assertThat(reopened.appointments()).containsExactlyInAnyOrderElementsOf(booked);
+        // Small segments force several rolls
+        assertThat(segmentFiles()).hasSizeGreaterThan(1);
+        reopened.destroy();
+    }
+
+    @Test
+    void stopsAtATornRecordAndKeepsAppendingAfterIt() throws Exception {
+        var journal = open(DataSize.ofKilobytes(64), 1_000_000);
+        var booked = appointments(3);
+        journal.commit(booked);
+        journal.destroy();
+
+        // Flip a byte in the payload of the last record, as if the crash hit mid-write
+        var segment = segmentFiles().get(0);
+        int lastRecordEnd;
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int position = 0;
+            int lastRecord = 0;
+            while (buffer.getInt(position) != 0) {
+                lastRecord = position;
+                position += 8 + buffer.getInt(position);
+            }
+            lastRecordEnd = position;
+            buffer.put(lastRecord + 12, (byte) (buffer.get(lastRecord + 12) ^ 0xFF));
+            buffer.force();
+        }
+        assertThat(lastRecordEnd).isPositive();
+
+        var reopened = open(DataSize.ofKilobytes(64), 1_000_000);
+        assertThat(reopened.appointments()).containsExactlyInAnyOrderElementsOf(booked.subList(0, 2));
+        var next = appointments(1).get(0);
+        reopened.commit(List.of(next));
+        reopened.destroy();
+
+        assertThat(open(DataSize.ofKilobytes(64), 1_000_000).appointments())
+                .containsExactlyInAnyOrder(booked.get(0), booked.get(1), next);
+    }
+
+    @Test
+    void snapshotTruncatesTheLogAndRecoversFromIt() throws Exception {
+        var journal = open(DataSize.ofKilobytes(4), 1_000_000);
+        var beforeSnapshot = appointments(150);
+        journal.commit(beforeSnapshot);
+        journal.snapshot();
+        var afterSnapshot = appointments(20);
+        journal.commit(afterSnapshot);
+        journal.destroy();
+
+        assertThat(Files.exists(directory.resolve("snapshot.bin"))).isTrue();
+        assertThat(segmentFiles()).hasSize(1);
+
+        var all = new ArrayList<>(beforeSnapshot);
+        all.addAll(afterSnapshot);
+        var reopened = open(DataSize.ofKilobytes(4), 1_000_000);
+        assertThat(reopened.appointments()).containsExactlyInAnyOrderElementsOf(all);
+        reopened.destroy();
+    }
+
+    @Test
+    void benchmarkGroupCommitThroughputAndRecovery() throws Exception {
+        int threads = 32;
+        int perThread = 2_000;
+        var journal = open(DataSize.ofMegabytes(16), 1_000_000);
+        var executor = Executors.newFixedThreadPool(threads);
+        var ready = new CountDownLatch(1);
+        var workers = new ArrayList<Future<?>>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit((Callable<Void>) () -> {
+                ready.await();
+                for (var appointment : appointments(perThread)) {
+                    journal.commit(List.of(appointment));
+                }
+                return null;
+            }));
+        }
+        long writeStart = System.nanoTime();
+        ready.countDown();
+        for (var worker : workers) {
+            worker.get();
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+        executor.shutdown();
+
+        int total = threads * perThread;
+        assertThat(journal.recordCount()).isEqualTo(total);
+        log.info("Journal: {} durable bookings from {} threads in {}ms ({} bookings/sec, {} fsyncs, {} bookings per fsync)",
+                total, threads, TimeUnit.NANOSECONDS.toMillis(writeNanos), Math.round(total / (writeNanos / 1e9)),
+                journal.fsyncCount(), String.format("%.1f", (double) total / journal.fsyncCount()));
+        journal.destroy();
+
+        long replayStart = System.nanoTime();
+        var reopened = open(DataSize.ofMegabytes(16), 1_000_000);
+        long replayNanos = System.nanoTime() - replayStart;
+        assertThat(reopened.appointments()).hasSize(total);
+        log.info("Journal: replayed {} records in {}ms", total, TimeUnit.NANOSECONDS.toMillis(replayNanos));
+
+        reopened.snapshot();
+        reopened.destroy();
+        long snapshotStart = System.nanoTime();
+        var fromSnapshot = open(DataSize.ofMegabytes(16), 1_000_000);
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+        assertThat(fromSnapshot.appointments()).hasSize(total);
+        log.info("Journal: recovered {} appointments from snapshot in {}ms", total,
+                TimeUnit.NANOSECONDS.toMillis(snapshotNanos));
+        fromSnapshot.destroy();
+    }
+
+    private AppointmentJournal open(DataSize segmentSize, int snapshotEvery) {
+        return new AppointmentJournal(directory, segmentSize, snapshotEvery);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static List<Appointment> appointments(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Appointment(UUID.randomUUID(), i, "Dog " + i, "seoul", START.plusMinutes(30L * i)))
+                .toList();
+    }
+}
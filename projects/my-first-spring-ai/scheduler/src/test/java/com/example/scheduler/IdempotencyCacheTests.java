@@ -0,0 +1,134 @@
+package com.example.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyCacheTests {
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsTheStoredResultUntilItExpires() {
+        var cache = cache(Duration.ofMinutes(10), 100);
+        var bookings = new AtomicInteger();
+
+        var first = cache.getOrBook("a", bookings::incrementAndGet, result -> true);
+        clock.advance(Duration.ofMinutes(9));
+        var second = cache.getOrBook("a", bookings::incrementAndGet, result -> true);
+        clock.advance(Duration.ofMinutes(2));
+        var third = cache.getOrBook("a", bookings::incrementAndGet, result -> true);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(1);
+        assertThat(third).isEqualTo(2);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("scheduler.idempotency.requests").tag("result", "hit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void holdsAtMostMaxEntriesAndEvictsTheOldest() {
+        var cache = cache(Duration.ofMinutes(10), 3);
+        for (int i = 0; i < 10; i++) {
+            cache.getOrBook("key-" + i, () -> "booked", result -> true);
+        }
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(meterRegistry.get("scheduler.idempotency.entries").gauge().value()).isEqualTo(3);
+        assertThat(cache.getOrBook("key-9", () -> "again", result -> true)).isEqualTo("booked");
+        assertThat(cache.getOrBook("key-0", () -> "again", result -> true)).isEqualTo("again");
+    }
+
+    @Test
+    void failuresAndUncacheableResultsAreNotKept() {
+        var cache = cache(Duration.ofMinutes(10), 100);
+
+        assertThatThrownBy(() -> cache.getOrBook("a", () -> {
+            throw new IllegalStateException("journal down");
+        }, result -> true)).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.getOrBook("a", () -> "no slot", result -> false)).isEqualTo("no slot");
+        assertThat(cache.getOrBook("a", () -> "booked", result -> true)).isEqualTo("booked");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstBooking() throws Exception {
+        var cache = cache(Duration.ofMinutes(10), 100);
+        var bookings = new AtomicInteger();
+        int threads = 16;
+        var executor = Executors.newFixedThreadPool(threads);
+        var ready = new CountDownLatch(1);
+        var results = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit((Callable<Integer>) () -> {
+                ready.await();
+                return cache.getOrBook("same", () -> {
+                    sleep(50);
+                    return bookings.incrementAndGet();
+                }, result -> true);
+            }));
+        }
+        ready.countDown();
+        for (var result : results) {
+            assertThat(result.get()).isEqualTo(1);
+        }
+        executor.shutdown();
+
+        assertThat(bookings).hasValue(1);
+        assertThat(cache.hitCount()).isEqualTo(threads - 1);
+    }
+
+    private IdempotencyCache cache(Duration ttl, int maxEntries) {
+        return new IdempotencyCache(ttl, maxEntries, meterRegistry, clock);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-05T08:00:00Z").toEpochMilli());
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.scheduler;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.scheduler.api.model.BatchScheduleRequest;
+import com.example.scheduler.api.model.ScheduleRequest;
+import com.example.scheduler.api.model.ScheduleResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchedulerServiceTests {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-05T08:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path directory;
+
+    private SlotAllocator allocator;
+    private AppointmentJournal journal;
+    private IdempotencyCache idempotencyCache;
+    private SchedulerService service;
+
+    @BeforeEach
+    void setUp() {
+        // One day of 16 slots, one staff member at "Oslo"
+        allocator = new SlotAllocator(new SlotProperties(10, 18, Duration.ofMinutes(30), 1, Duration.ofHours(24), 2,
+                Map.of("oslo", 1)), CLOCK);
+        journal = new AppointmentJournal(directory, DataSize.ofKilobytes(64), 1_000_000);
+        idempotencyCache = new IdempotencyCache(Duration.ofMinutes(10), 1_000,
+                new SimpleMeterRegistry(), CLOCK);
+        service = new SchedulerService(allocator, journal, idempotencyCache);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.destroy();
+    }
+
+    @Test
+    void batchBooksEveryDogInOneJournalCommit() {
+        long fsyncsBefore = journal.fsyncCount();
+
+        var response = service.scheduleAppointments(batch(request(1, "Rex", "Seoul"), request(2, "Bella", "Seoul"),
+                request(3, "Max", "Tokyo")));
+
+        assertThat(response.getSuccess()).isTrue();
+        assertThat(response.getAppointments()).extracting(ScheduleResponse::getDogName)
+                .containsExactly("Rex", "Bella", "Max");
+        assertThat(response.getAppointments()).allSatisfy(confirmation -> {
+            assertThat(confirmation.getSuccess()).isTrue();
+            assertThat(confirmation.getAppointmentId()).isNotNull();
+            assertThat(confirmation.getAppointmentTime()).isNotNull();
+        });
+        assertThat(journal.appointments()).hasSize(3);
+        assertThat(journal.fsyncCount() - fsyncsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void batchIsRolledBackWhenOneDogCannotBeBooked() {
+        // Fill every slot at Oslo, then ask for one more Oslo dog alongside a Seoul dog
+        for (int dogId = 100; dogId < 100 + allocator.slotsPerDay(); dogId++) {
+            assertThat(service.scheduleAppointment(request(dogId, "Dog " + dogId, "Oslo")).getSuccess()).isTrue();
+        }
+        int journaled = journal.appointments().size();
+
+        var response = service.scheduleAppointments(batch(request(1, "Rex", "Seoul"), request(2, "Bella", "Oslo")));
+
+        assertThat(response.getSuccess()).isFalse();
+        assertThat(response.getAppointments()).isEmpty();
+        assertThat(response.getMessage()).contains("Bella");
+        assertThat(journal.appointments()).hasSize(journaled);
+        // Rex's slot was given back
+        var seoulFirstSlot = service.scheduleAppointment(request(3, "Max", "Seoul")).getAppointmentTime();
+        assertThat(allocator.bookedAt("Seoul", seoulFirstSlot)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThat(service.scheduleAppointments(new BatchScheduleRequest()).getSuccess()).isFalse();
+
+        var oversized = new BatchScheduleRequest();
+        for (int dogId = 0; dogId <= SchedulerService.MAX_BATCH_SIZE; dogId++) {
+            oversized.addAppointmentsItem(request(dogId, "Dog " + dogId, "Seoul"));
+        }
+        assertThat(service.scheduleAppointments(oversized).getSuccess()).isFalse();
+        assertThat(journal.appointments()).isEmpty();
+    }
+
+    @Test
+    void repeatedRequestWithTheSameKeyReturnsTheOriginalAppointment() {
+        var first = service.scheduleAppointment(request(1, "Rex", "Seoul"), "retry-1");
+        var repeated = request(1, "Rex", "Seoul");
+        repeated.setIdempotencyKey("retry-1");
+        var second = service.scheduleAppointment(repeated);
+
+        assertThat(second).isSameAs(first);
+        assertThat(journal.appointments()).hasSize(1);
+        assertThat(idempotencyCache.hitCount()).isEqualTo(1);
+
+        // A new key is a new booking
+        var third = service.scheduleAppointment(request(1, "Rex", "Seoul"), "retry-2");
+        assertThat(third.getAppointmentId()).isNotEqualTo(first.getAppointmentId());
+        assertThat(journal.appointments()).hasSize(2);
+    }
+
+    @Test
+    void withoutAKeyDuplicatesAreDetectedByUserDogAndLocation() {
+        var josh = request(1, "Rex", "Seoul");
+        josh.setRequestedBy("josh");
+        var first = service.scheduleAppointment(josh);
+        var again = service.scheduleAppointment(josh);
+        var otherLocation = request(1, "Rex", "Tokyo");
+        otherLocation.setRequestedBy("josh");
+        var otherUser = request(1, "Rex", "Seoul");
+        otherUser.setRequestedBy("mark");
+
+        assertThat(again.getAppointmentId()).isEqualTo(first.getAppointmentId());
+        assertThat(service.scheduleAppointment(otherLocation).getAppointmentId()).isNotEqualTo(first.getAppointmentId());
+        assertThat(service.scheduleAppointment(otherUser).getAppointmentId()).isNotEqualTo(first.getAppointmentId());
+        assertThat(journal.appointments()).hasSize(3);
+    }
+
+    @Test
+    void anonymousRequestsWithoutAKeyAreNeverDeduplicated() {
+        var first = service.scheduleAppointment(request(1, "Rex", "Seoul"));
+        var second = service.scheduleAppointment(request(1, "Rex", "Seoul"));
+        var firstBatch = service.scheduleAppointments(batch(request(2, "Bella", "Seoul")));
+        var secondBatch = service.scheduleAppointments(batch(request(2, "Bella", "Seoul")));
+
+        assertThat(second.getAppointmentId()).isNotEqualTo(first.getAppointmentId());
+        assertThat(secondBatch.getAppointments().get(0).getAppointmentId())
+                .isNotEqualTo(firstBatch.getAppointments().get(0).getAppointmentId());
+        assertThat(journal.appointments()).hasSize(4);
+        assertThat(idempotencyCache.hitCount()).isZero();
+    }
+
+    @Test
+    void failedBookingsAreNotRemembered() {
+        for (int dogId = 100; dogId < 100 + allocator.slotsPerDay(); dogId++) {
+            service.scheduleAppointment(request(dogId, "Dog " + dogId, "Oslo"));
+        }
+        assertThat(service.scheduleAppointment(request(1, "Rex", "Oslo"), "full").getSuccess()).isFalse();
+
+        allocator.release(journal.appointments().iterator().next().reservation());
+
+        assertThat(service.scheduleAppointment(request(1, "Rex", "Oslo"), "full").getSuccess()).isTrue();
+    }
+
+    @Test
+    void repeatedBatchIsBookedOnce() {
+        var first = service.scheduleAppointments(batch(request(1, "Rex", "Seoul"), request(2, "Bella", "Seoul")), "batch-1");
+        var second = service.scheduleAppointments(batch(request(1, "Rex", "Seoul"), request(2, "Bella", "Seoul")), "batch-1");
+
+        assertThat(second).isSameAs(first);
+        assertThat(journal.appointments()).hasSize(2);
+    }
+
+    private static BatchScheduleRequest batch(ScheduleRequest... requests) {
+        var batch = new BatchScheduleRequest();
+        for (var request : requests) {
+            batch.addAppointmentsItem(request);
+        }
+        return batch;
+    }
+
+    private static ScheduleRequest request(int dogId, String dogName, String location) {
+        var request = new ScheduleRequest(dogId, dogName);
+        request.setLocation(location);
+        return request;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlotAllocatorTests {
+
+    private static final Logger log = LoggerFactory.getLogger(SlotAllocatorTests.class);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-05T08:00:00Z"), ZoneOffset.UTC);
+    private static final OffsetDateTime FIRST_SLOT = OffsetDateTime.parse("2026-01-06T10:00:00Z");
+    private static final int THREADS = 64;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void offersTheNextFreeSlotOnceALocationIsFull() {
+        var allocator = allocator(2, 2, Map.of());
+
+        var first = allocator.reserveNextFree(1, "Seoul").orElseThrow();
+        var second = allocator.reserveNextFree(2, "Seoul").orElseThrow();
+        var third = allocator.reserveNextFree(3, "Seoul").orElseThrow();
+
+        assertThat(first.start()).isEqualTo(FIRST_SLOT);
+        assertThat(second.start()).isEqualTo(FIRST_SLOT);
+        assertThat(third.start()).isEqualTo(FIRST_SLOT.plusMinutes(30));
+        // Another location has its own staff
+        assertThat(allocator.reserveNextFree(4, "Tokyo").orElseThrow().start()).isEqualTo(FIRST_SLOT);
+    }
+
+    @Test
+    void refusesToBookTheSameDogTwiceInOneSlot() {
+        var allocator = allocator(1, 5, Map.of());
+
+        var first = allocator.reserveNextFree(7, "Paris").orElseThrow();
+        var second = allocator.reserveNextFree(7, "Paris").orElseThrow();
+
+        assertThat(second.start()).isAfter(first.start());
+        assertThat(allocator.bookedAt("Paris", first.start())).isEqualTo(1);
+    }
+
+    @Test
+    void releaseGivesTheSlotBack() {
+        var allocator = allocator(1, 1, Map.of());
+        var reservation = allocator.reserveNextFree(1, "London").orElseThrow();
+
+        allocator.release(reservation);
+
+        assertThat(allocator.bookedAt("London", reservation.start())).isZero();
+        assertThat(allocator.reserveNextFree(2, "London").orElseThrow().start()).isEqualTo(reservation.start());
+    }
+
+    @Test
+    void concurrentBookingsNeverExceedStaffCapacity() throws Exception {
+        int days = 3;
+        var allocator = allocator(days, 2, Map.of("amsterdam", 3));
+        int capacity = allocator.capacity("Amsterdam") * allocator.slotsPerDay() * days;
+        int attempts = capacity * 2;
+
+        var reservations = runConcurrently(attempts, i -> allocator.reserveNextFree(i, "Amsterdam"));
+
+        assertThat(reservations).hasSize(capacity);
+        for (int day = 0; day < days; day++) {
+            for (int slot = 0; slot < allocator.slotsPerDay(); slot++) {
+                var start = FIRST_SLOT.plusDays(day).plusMinutes(30L * slot);
+                assertThat(allocator.bookedAt("Amsterdam", start)).isEqualTo(3);
+            }
+        }
+        assertThat(reservations.stream().map(SlotAllocator.Reservation::appointmentId).distinct()).hasSize(capacity);
+    }
+
+    @Test
+    void burstForOneDogGetsDistinctSlots() throws Exception {
+        var allocator = allocator(1, 4, Map.of());
+        int slots = allocator.slotsPerDay();
+
+        var reservations = runConcurrently(slots * 3, i -> allocator.reserveNextFree(42, "Mumbai"));
+
+        assertThat(reservations).hasSize(slots);
+        assertThat(new HashSet<>(reservations.stream().map(SlotAllocator.Reservation::start).toList())).hasSize(slots);
+    }
+
+    @Test
+    void releasedSlotsAreBookedAgainUnderConcurrentReservations() throws Exception {
+        var allocator = allocator(1, 1, Map.of());
+        int slots = allocator.slotsPerDay();
+        var held = new ConcurrentLinkedQueue<SlotAllocator.Reservation>();
+        for (int dogId = 0; dogId < slots; dogId++) {
+            held.add(allocator.reserveNextFree(dogId, "Berlin").orElseThrow());
+        }
+        var dogIds = new AtomicInteger(slots);
+
+        // Half the workers release a slot and book another dog, the other half keep probing the
+        // full location, which raises the first-open hint while slots are being given back
+        runConcurrently(200_000, i -> {
+            if (i % 2 == 0) {
+                var reservation = held.poll();
+                if (reservation != null) {
+                    allocator.release(reservation);
+                    allocator.reserveNextFree(dogIds.incrementAndGet(), "Berlin").ifPresent(held::add);
+                }
+            } else {
+                allocator.reserveNextFree(dogIds.incrementAndGet(), "Berlin").ifPresent(allocator::release);
+            }
+            return Optional.empty();
+        });
+
+        // Every slot that is not held must still be found, without a release to move the hint back
+        int free = slots - held.size();
+        var rebooked = runConcurrently(slots * 2, i -> allocator.reserveNextFree(1_000_000 + i, "Berlin"));
+        assertThat(rebooked).hasSize(free);
+    }
+
+    @Test
+    void throughputAtHighThreadCounts() throws Exception {
+        int locations = 50;
+        var allocator = allocator(30, 4, Map.of());
+        int bookings = 80_000;
+
+        long start = System.nanoTime();
+        var reservations = runConcurrently(bookings, i -> allocator.reserveNextFree(i, "location-" + (i % locations)));
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(reservations).hasSize(bookings);
+        log.info("{} bookings on {} threads in {}ms ({} bookings/sec)", bookings, THREADS,
+                Duration.ofNanos(elapsed).toMillis(), Math.round(bookings / (elapsed / 1e9)));
+    }
+
+    private static SlotAllocator allocator(int horizonDays, int defaultStaff, Map<String, Integer> staff) {
+        var properties = new SlotProperties(10, 18, Duration.ofMinutes(30), horizonDays, Duration.ofHours(24),
+                defaultStaff, staff);
+        return new SlotAllocator(properties, CLOCK);
+    }
+
+    private List<SlotAllocator.Reservation> runConcurrently(int attempts, Booking booking) throws Exception {
+        var results = new ConcurrentLinkedQueue<SlotAllocator.Reservation>();
+        var next = new AtomicInteger();
+        var ready = new CountDownLatch(1);
+        var workers = new ArrayList<Future<?>>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit((Callable<Void>) () -> {
+                ready.await();
+                for (int i = next.getAndIncrement(); i < attempts; i = next.getAndIncrement()) {
+                    booking.reserve(i).ifPresent(results::add);
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (var worker : workers) {
+            worker.get();
+        }
+        return new ArrayList<>(results);
+    }
+
+    @FunctionalInterface
+    private interface Booking {
+        Optional<SlotAllocator.Reservation> reserve(int attempt);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.my_weather_server;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.example.my_weather_server.WeatherService.Alert;
+
+/**
+ * Immutable snapshot of the active alerts, indexed by state and severity and by area.
+ * <p>
+ * The state of an alert comes from the first two letters of each UGC zone it covers, so an alert
+ * spanning several states is listed under each of them. Alerts with a polygon are also kept in an
+ * {@link AlertSpatialIndex}; those issued only for forecast zones or counties are kept by UGC zone
+ * instead, so a point lookup needs the zones of the point to find them. State lookups return
+ * prebuilt {@link Alert} values and never allocate. A new snapshot is built for every changed feed and replaces the old
+ * one as a whole; {@link #changesSince(AlertIndex)} tells subscribers what differs.
+ */
+public final class AlertIndex {
+
+	public enum ChangeType {
+
+		ADDED, UPDATED, REMOVED
+
+	}
+
+	public record Change(ChangeType type, String id, Set<String> states, Alert.Feature feature) {
+	}
+
+	private static final Alert NO_ALERTS = new Alert(List.of());
+
+	private final Map<String, Alert.Feature> byId;
+
+	private final Map<String, Alert> byState;
+
+	private final Map<String, Map<String, Alert>> byStateAndSeverity;
+
+	private final AlertSpatialIndex areas;
+
+	// Alerts without a polygon, by the UGC zones they cover
+	private final Map<String, List<Alert.Feature>> byZone;
+
+	private final String etag;
+
+	private final String lastModified;
+
+	private final Instant validatedAt;
+
+	private AlertIndex(Map<String, Alert.Feature> byId, Map<String, Alert> byState,
+			Map<String, Map<String, Alert>> byStateAndSeverity, AlertSpatialIndex areas,
+			Map<String, List<Alert.Feature>> byZone, String etag, String lastModified, Instant validatedAt) {
+		this.byId = byId;
+		this.byState = byState;
+		this.byStateAndSeverity = byStateAndSeverity;
+		this.areas = areas;
+		this.byZone = byZone;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.validatedAt = validatedAt;
+	}
+
+	static AlertIndex of(Alert feed, String etag, String lastModified, Instant validatedAt) {
+		var byId = new LinkedHashMap<String, Alert.Feature>();
+		var states = new LinkedHashMap<String, List<Alert.Feature>>();
+		var severities = new LinkedHashMap<String, Map<String, List<Alert.Feature>>>();
+		var zones = new LinkedHashMap<String, List<Alert.Feature>>();
+		List<Alert.Feature> features = feed == null || feed.features() == null ? List.of() : feed.features();
+		for (var feature : features) {
+			if (feature == null || feature.properties() == null) {
+				continue;
+			}
+			byId.put(id(feature), feature);
+			String severity = severityKey(feature.properties().severity());
+			for (String state : states(feature)) {
+				states.computeIfAbsent(state, s -> new ArrayList<>()).add(feature);
+				severities.computeIfAbsent(state, s -> new LinkedHashMap<>())
+					.computeIfAbsent(severity, s -> new ArrayList<>())
+					.add(feature);
+			}
+			if (!AlertSpatialIndex.hasArea(feature)) {
+				for (String zone : zones(feature)) {
+					zones.computeIfAbsent(zone, z -> new ArrayList<>()).add(feature);
+				}
+			}
+		}
+
+		var byState = new LinkedHashMap<String, Alert>();
+		states.forEach((state, list) -> byState.put(state, new Alert(List.copyOf(list))));
+		var byStateAndSeverity = new LinkedHashMap<String, Map<String, Alert>>();
+		severities.forEach((state, bySeverity) -> {
+			var alerts = new LinkedHashMap<String, Alert>();
+			bySeverity.forEach((severity, list) -> alerts.put(severity, new Alert(List.copyOf(list))));
+			byStateAndSeverity.put(state, Map.copyOf(alerts));
+		});
+		var byZone = new LinkedHashMap<String, List<Alert.Feature>>();
+		zones.forEach((zone, list) -> byZone.put(zone, List.copyOf(list)));
+		return new AlertIndex(Map.copyOf(byId), Map.copyOf(byState), Map.copyOf(byStateAndSeverity),
+				AlertSpatialIndex.of(byId.values()), Map.copyOf(byZone), etag, lastModified, validatedAt);
+	}
+
+	/**
+	 * The same alerts, confirmed unchanged by the upstream at {@code validatedAt}.
+	 */
+	AlertIndex revalidated(String etag, String lastModified, Instant validatedAt) {
+		return new AlertIndex(byId, byState, byStateAndSeverity, areas, byZone, etag != null ? etag : this.etag,
+				lastModified != null ? lastModified : this.lastModified, validatedAt);
+	}
+
+	/**
+	 * Active alerts for a two-letter state, optionally only those of one severity.
+	 */
+	public Alert alerts(String state, String severity) {
+		String stateKey = state == null ? "" : state.trim().toUpperCase(Locale.ROOT);
+		if (severity == null) {
+			return byState.getOrDefault(stateKey, NO_ALERTS);
+		}
+		return byStateAndSeverity.getOrDefault(stateKey, Map.of()).getOrDefault(severityKey(severity), NO_ALERTS);
+	}
+
+	/**
+	 * Active alerts covering the point: those whose polygon contains it, then those issued for one
+	 * of {@code zones}, the UGC codes of the forecast zone and county the point lies in.
+	 */
+	public Alert alertsAt(double latitude, double longitude, Collection<String> zones) {
+		var inPolygons = areas.containing(latitude, longitude);
+		List<Alert.Feature> inZones = null;
+		for (String zone : zones) {
+			var features = byZone.get(zone.toUpperCase(Locale.ROOT));
+			if (features == null) {
+				continue;
+			}
+			if (inZones == null) {
+				inZones = new ArrayList<>(inPolygons.features());
+			}
+			for (var feature : features) {
+				if (!inZones.contains(feature)) {
+					inZones.add(feature);
+				}
+			}
+		}
+		return inZones == null ? inPolygons : new Alert(inZones);
+	}
+
+	/**
+	 * Whether any active alert has no polygon, so a point lookup needs the zones of the point.
+	 */
+	public boolean hasZoneAlerts() {
+		return !byZone.isEmpty();
+	}
+
+	/**
+	 * What a subscriber holding {@code previous} needs to know to catch up with this index.
+	 */
+	List<Change> changesSince(AlertIndex previous) {
+		Map<String, Alert.Feature> before = previous == null ? Map.of() : previous.byId;
+		var changes = new ArrayList<Change>();
+		byId.forEach((id, feature) -> {
+			var old = before.get(id);
+			if (old == null) {
+				changes.add(new Change(ChangeType.ADDED, id, states(feature), feature));
+			}
+			else if (!old.equals(feature)) {
+				changes.add(new Change(ChangeType.UPDATED, id, states(feature), feature));
+			}
+		});
+		before.forEach((id, feature) -> {
+			if (!byId.containsKey(id)) {
+				changes.add(new Change(ChangeType.REMOVED, id, states(feature), feature));
+			}
+		});
+		return changes;
+	}
+
+	public int size() {
+		return byId.size();
+	}
+
+	public Instant validatedAt() {
+		return validatedAt;
+	}
+
+	String etag() {
+		return etag;
+	}
+
+	String lastModified() {
+		return lastModified;
+	}
+
+	static Set<String> states(Alert.Feature feature) {
+		var states = new LinkedHashSet<String>();
+		for (String zone : zones(feature)) {
+			if (zone.length() >= 2) {
+				states.add(zone.substring(0, 2));
+			}
+		}
+		return Set.copyOf(states);
+	}
+
+	private static Set<String> zones(Alert.Feature feature) {
+		var geocode = feature.properties().geocode();
+		if (geocode == null || geocode.ugc() == null) {
+			return Set.of();
+		}
+		var zones = new LinkedHashSet<String>();
+		for (String zone : geocode.ugc()) {
+			if (zone != null && !zone.isBlank()) {
+				zones.add(zone.trim().toUpperCase(Locale.ROOT));
+			}
+		}
+		return zones;
+	}
+
+	private static String id(Alert.Feature feature) {
+		var properties = feature.properties();
+		return Objects.requireNonNullElse(properties.id(), properties.event() + "|" + properties.areaDesc());
+	}
+
+	private static String severityKey(String severity) {
+		return severity == null ? "unknown" : severity.trim().toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -0,0 +1,327 @@
+package com.example.my_weather_server;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Polls the nationwide active-alerts feed in the background and keeps it as an {@link AlertIndex}.
+ * <p>
+ * Each poll is a conditional request with the {@code ETag} or {@code Last-Modified} of the last
+ * feed, so an unchanged feed costs a {@code 304}. A changed feed is indexed off to the side and
+ * swapped in with one reference write, so readers never see a half-built index and never wait.
+ * Subscribers are told which alerts were added, updated or removed, through a bounded queue of
+ * their own that a small delivery pool drains, so a slow subscriber never holds up polling. If polls keep failing, the
+ * index is no longer offered once it is older than {@code maxStaleness}, and {@link WeatherService}
+ * falls back to asking upstream directly.
+ * <p>
+ * Opt-in with {@code weather.alerts.ingestion.enabled=true}; while it is off, every alert tool call
+ * goes upstream.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.alerts.ingestion.enabled", havingValue = "true")
+public class AlertIngestor implements SmartLifecycle, DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(AlertIngestor.class);
+
+	private record Poll(AlertIndex index, boolean modified) {
+	}
+
+	private final RestClient restClient;
+
+	private final Duration pollInterval;
+
+	private final Duration maxStaleness;
+
+	private final Clock clock;
+
+	private final AtomicReference<AlertIndex> index = new AtomicReference<>();
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	private final int subscriberQueueCapacity;
+
+	private final ExecutorService delivery;
+
+	private final Counter modified;
+
+	private final Counter notModified;
+
+	private final Counter failed;
+
+	private final Counter droppedSubscribers;
+
+	private volatile ScheduledExecutorService executor;
+
+	@Autowired
+	public AlertIngestor(MeterRegistry meterRegistry,
+			@Value("${weather.api.base-url:https://api.weather.gov}") String baseUrl,
+			@Value("${weather.api.connect-timeout:PT5S}") Duration connectTimeout,
+			@Value("${weather.api.read-timeout:PT10S}") Duration readTimeout,
+			@Value("${weather.alerts.ingestion.poll-interval:PT30S}") Duration pollInterval,
+			@Value("${weather.alerts.ingestion.max-staleness:PT5M}") Duration maxStaleness,
+			@Value("${weather.alerts.subscribers.queue-capacity:64}") int subscriberQueueCapacity,
+			@Value("${weather.alerts.subscribers.delivery-threads:4}") int deliveryThreads) {
+		this(WeatherService.restClient(baseUrl, connectTimeout, readTimeout), pollInterval, maxStaleness,
+				subscriberQueueCapacity, deliveryThreads, meterRegistry, Clock.systemUTC());
+	}
+
+	AlertIngestor(RestClient restClient, Duration pollInterval, Duration maxStaleness, int subscriberQueueCapacity,
+			int deliveryThreads, MeterRegistry meterRegistry, Clock clock) {
+		this.restClient = restClient;
+		this.pollInterval = pollInterval;
+		this.maxStaleness = maxStaleness;
+		this.subscriberQueueCapacity = subscriberQueueCapacity;
+		this.clock = clock;
+		AtomicInteger deliveryThreadCount = new AtomicInteger();
+		this.delivery = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+			var thread = new Thread(runnable, "alert-delivery-" + deliveryThreadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.modified = polls(meterRegistry, "modified", "Alert feed polls that returned new alerts");
+		this.notModified = polls(meterRegistry, "not-modified", "Alert feed polls answered with 304 Not Modified");
+		this.failed = polls(meterRegistry, "error", "Alert feed polls that failed");
+		this.droppedSubscribers = Counter.builder("weather.alerts.subscribers.dropped")
+			.description("Alert subscribers dropped because they fell behind or failed")
+			.register(meterRegistry);
+		Gauge.builder("weather.alerts.index.size", index, ref -> ref.get() == null ? 0 : ref.get().size())
+			.description("Active alerts held in the in-memory index")
+			.register(meterRegistry);
+		Gauge.builder("weather.alerts.index.age", this,
+				ingestor -> ingestor.index.get() == null ? Double.NaN
+						: Duration.between(ingestor.index.get().validatedAt(), ingestor.clock.instant()).toMillis() / 1000.0)
+			.description("Seconds since the alert index was last confirmed against the feed")
+			.baseUnit("seconds")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * The current index, or {@code null} before the first successful poll or once it is stale.
+	 */
+	public AlertIndex current() {
+		var current = index.get();
+		if (current == null || current.validatedAt().plus(maxStaleness).isBefore(clock.instant())) {
+			return null;
+		}
+		return current;
+	}
+
+	/**
+	 * Calls the subscriber with the changes of every new index, in order, on a delivery thread.
+	 * @return an action that ends the subscription
+	 */
+	public Runnable subscribe(Consumer<List<AlertIndex.Change>> subscriber) {
+		return subscribe(subscriber, () -> {
+		});
+	}
+
+	/**
+	 * Calls the subscriber with the changes of every new index, in order, on a delivery thread. A
+	 * subscriber that throws, or that falls {@code weather.alerts.subscribers.queue-capacity} change
+	 * sets behind, is dropped and {@code onDropped} is run.
+	 * @return an action that ends the subscription
+	 */
+	public Runnable subscribe(Consumer<List<AlertIndex.Change>> subscriber, Runnable onDropped) {
+		var subscription = new Subscription(subscriber, onDropped);
+		subscriptions.add(subscription);
+		return () -> subscriptions.remove(subscription);
+	}
+
+	/**
+	 * Fetches the feed once, unless it has not changed since the last poll.
+	 * @throws RestClientException if the request fails
+	 */
+	synchronized void poll() {
+		var previous = index.get();
+		Instant now = clock.instant();
+		Poll poll = restClient.get()
+			.uri("/alerts/active")
+			.headers(headers -> {
+				if (previous != null && previous.etag() != null) {
+					headers.setIfNoneMatch(previous.etag());
+				}
+				else if (previous != null && previous.lastModified() != null) {
+					headers.set(HttpHeaders.IF_MODIFIED_SINCE, previous.lastModified());
+				}
+			})
+			.exchange((request, response) -> {
+				HttpHeaders headers = response.getHeaders();
+				String etag = headers.getETag();
+				String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+				if (previous != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					return new Poll(previous.revalidated(etag, lastModified, now), false);
+				}
+				if (response.getStatusCode().isError()) {
+					throw new RestClientResponseException("Alert feed request failed", response.getStatusCode(),
+							response.getStatusText(), headers, response.getBody().readAllBytes(), null);
+				}
+				var feed = response.bodyTo(WeatherService.Alert.class);
+				return new Poll(AlertIndex.of(feed, etag, lastModified, now), true);
+			});
+
+		index.set(poll.index());
+		if (!poll.modified()) {
+			notModified.increment();
+			return;
+		}
+		modified.increment();
+		publish(poll.index().changesSince(previous));
+	}
+
+	private void publish(List<AlertIndex.Change> changes) {
+		if (changes.isEmpty()) {
+			return;
+		}
+		for (var subscription : subscriptions) {
+			subscription.offer(changes);
+		}
+	}
+
+	private void pollSafely() {
+		try {
+			poll();
+		}
+		catch (RuntimeException e) {
+			failed.increment();
+			logger.warn("Could not poll active alerts: {}", e.getMessage());
+		}
+	}
+
+	@Override
+	public void start() {
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "alert-ingestor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::pollSafely, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+		logger.info("Polling active alerts every {}", pollInterval);
+	}
+
+	@Override
+	public void stop() {
+		var current = executor;
+		executor = null;
+		if (current != null) {
+			current.shutdownNow();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return executor != null;
+	}
+
+	@Override
+	public void destroy() {
+		delivery.shutdownNow();
+	}
+
+	private static Counter polls(MeterRegistry meterRegistry, String result, String description) {
+		return Counter.builder("weather.alerts.ingestion.polls")
+			.tag("result", result)
+			.description(description)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * A subscriber and the change sets not yet handed to it. At most one delivery thread drains the
+	 * queue at a time, so the subscriber sees change sets in the order they were published.
+	 */
+	private final class Subscription {
+
+		private final Consumer<List<AlertIndex.Change>> subscriber;
+
+		private final Runnable onDropped;
+
+		private final BlockingQueue<List<AlertIndex.Change>> pending = new ArrayBlockingQueue<>(subscriberQueueCapacity);
+
+		private final AtomicBoolean draining = new AtomicBoolean();
+
+		Subscription(Consumer<List<AlertIndex.Change>> subscriber, Runnable onDropped) {
+			this.subscriber = subscriber;
+			this.onDropped = onDropped;
+		}
+
+		void offer(List<AlertIndex.Change> changes) {
+			if (!pending.offer(changes)) {
+				drop(subscriberQueueCapacity + " change sets behind");
+				return;
+			}
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if (draining.compareAndSet(false, true)) {
+				try {
+					delivery.execute(this::drain);
+				}
+				catch (RejectedExecutionException e) {
+					draining.set(false);
+				}
+			}
+		}
+
+		private void drain() {
+			try {
+				List<AlertIndex.Change> changes;
+				while (subscriptions.contains(this) && (changes = pending.poll()) != null) {
+					subscriber.accept(changes);
+				}
+			}
+			catch (RuntimeException e) {
+				drop("failed: " + e.getMessage());
+			}
+			finally {
+				draining.set(false);
+			}
+			// A change set offered after the last poll above found no drain running to pick it up
+			if (!pending.isEmpty() && subscriptions.contains(this)) {
+				scheduleDrain();
+			}
+		}
+
+		private void drop(String reason) {
+			if (subscriptions.remove(this)) {
+				pending.clear();
+				droppedSubscribers.increment();
+				logger.warn("Dropping alert subscriber, {}", reason);
+				onDropped.run();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.example.my_weather_server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import com.example.my_weather_server.WeatherService.Alert;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Immutable uniform-grid index over the polygons of the active alerts, answering which alerts
+ * contain a point.
+ * <p>
+ * Every alert's rings are flattened into {@code double} arrays once. Each grid cell lists the
+ * alerts whose bounding box overlaps it, so a query looks at one cell, filters its candidates by
+ * bounding box and runs an even-odd ray cast over the remaining rings. Counting crossings over all
+ * rings of an alert at once handles holes and the disjoint parts of a MultiPolygon alike.
+ */
+public final class AlertSpatialIndex {
+
+	static final double DEFAULT_CELL_DEGREES = 0.5;
+
+	private static final int MAX_CELLS_PER_AXIS = 1024;
+
+	private static final Alert NO_ALERTS = new Alert(List.of());
+
+	static final AlertSpatialIndex EMPTY = new AlertSpatialIndex(new Shape[0], 0, 0, 1, 0, 0, new int[0][]);
+
+	private record Shape(Alert.Feature feature, double minLon, double minLat, double maxLon, double maxLat,
+			double[][] rings) {
+
+		boolean contains(double lon, double lat) {
+			if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) {
+				return false;
+			}
+			boolean inside = false;
+			for (double[] ring : rings) {
+				int points = ring.length / 2;
+				for (int i = 0, j = points - 1; i < points; j = i++) {
+					double xi = ring[2 * i], yi = ring[2 * i + 1];
+					double xj = ring[2 * j], yj = ring[2 * j + 1];
+					if ((yi > lat) != (yj > lat) && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+						inside = !inside;
+					}
+				}
+			}
+			return inside;
+		}
+	}
+
+	private final Shape[] shapes;
+
+	private final double originLon;
+
+	private final double originLat;
+
+	private final double cellDegrees;
+
+	private final int columns;
+
+	private final int rows;
+
+	// Shape indexes per cell, row-major; null for empty cells
+	private final int[][] cells;
+
+	private AlertSpatialIndex(Shape[] shapes, double originLon, double originLat, double cellDegrees, int columns,
+			int rows, int[][] cells) {
+		this.shapes = shapes;
+		this.originLon = originLon;
+		this.originLat = originLat;
+		this.cellDegrees = cellDegrees;
+		this.columns = columns;
+		this.rows = rows;
+		this.cells = cells;
+	}
+
+	static AlertSpatialIndex of(Collection<Alert.Feature> features) {
+		return of(features, DEFAULT_CELL_DEGREES);
+	}
+
+	static AlertSpatialIndex of(Collection<Alert.Feature> features, double cellDegrees) {
+		var shapes = new ArrayList<Shape>();
+		for (var feature : features) {
+			var shape = shape(feature);
+			if (shape != null) {
+				shapes.add(shape);
+			}
+		}
+		if (shapes.isEmpty()) {
+			return EMPTY;
+		}
+
+		double minLon = Double.MAX_VALUE, minLat = Double.MAX_VALUE;
+		double maxLon = -Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+		for (var shape : shapes) {
+			minLon = Math.min(minLon, shape.minLon());
+			minLat = Math.min(minLat, shape.minLat());
+			maxLon = Math.max(maxLon, shape.maxLon());
+			maxLat = Math.max(maxLat, shape.maxLat());
+		}
+		// Alerts from Guam to the Virgin Islands span most of the globe; coarser cells keep the grid small
+		double cell = Math.max(cellDegrees,
+				Math.max(maxLon - minLon, maxLat - minLat) / MAX_CELLS_PER_AXIS);
+		int columns = (int) ((maxLon - minLon) / cell) + 1;
+		int rows = (int) ((maxLat - minLat) / cell) + 1;
+
+		// Two passes: count the shapes per cell, then fill exactly sized arrays
+		int[] counts = new int[columns * rows];
+		for (var shape : shapes) {
+			forEachCell(shape, minLon, minLat, cell, columns, c -> counts[c]++);
+		}
+		var cells = new int[counts.length][];
+		int[] filled = new int[counts.length];
+		for (int s = 0; s < shapes.size(); s++) {
+			int index = s;
+			forEachCell(shapes.get(s), minLon, minLat, cell, columns, c -> {
+				if (cells[c] == null) {
+					cells[c] = new int[counts[c]];
+				}
+				cells[c][filled[c]++] = index;
+			});
+		}
+		return new AlertSpatialIndex(shapes.toArray(Shape[]::new), minLon, minLat, cell, columns, rows, cells);
+	}
+
+	private static void forEachCell(Shape shape, double originLon, double originLat, double cell, int columns,
+			IntConsumer action) {
+		int firstColumn = (int) ((shape.minLon() - originLon) / cell);
+		int lastColumn = (int) ((shape.maxLon() - originLon) / cell);
+		int firstRow = (int) ((shape.minLat() - originLat) / cell);
+		int lastRow = (int) ((shape.maxLat() - originLat) / cell);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				action.accept(row * columns + column);
+			}
+		}
+	}
+
+	/**
+	 * Alerts whose area contains the point, in feed order.
+	 */
+	public Alert containing(double latitude, double longitude) {
+		int column = (int) Math.floor((longitude - originLon) / cellDegrees);
+		int row = (int) Math.floor((latitude - originLat) / cellDegrees);
+		if (column < 0 || column >= columns || row < 0 || row >= rows) {
+			return NO_ALERTS;
+		}
+		int[] candidates = cells[row * columns + column];
+		if (candidates == null) {
+			return NO_ALERTS;
+		}
+		List<Alert.Feature> matches = null;
+		for (int candidate : candidates) {
+			var shape = shapes[candidate];
+			if (shape.contains(longitude, latitude)) {
+				if (matches == null) {
+					matches = new ArrayList<>(2);
+				}
+				matches.add(shape.feature());
+			}
+		}
+		return matches == null ? NO_ALERTS : new Alert(matches);
+	}
+
+	public int size() {
+		return shapes.length;
+	}
+
+	/**
+	 * Whether the alert carries a Polygon or MultiPolygon this index can match points against.
+	 * Alerts issued for whole forecast zones or counties have no geometry in the feed.
+	 */
+	static boolean hasArea(Alert.Feature feature) {
+		var geometry = feature.geometry();
+		return geometry != null && geometry.coordinates() != null
+				&& ("Polygon".equals(geometry.type()) || "MultiPolygon".equals(geometry.type()));
+	}
+
+	private static Shape shape(Alert.Feature feature) {
+		if (!hasArea(feature)) {
+			return null;
+		}
+		var geometry = feature.geometry();
+		var rings = new ArrayList<double[]>();
+		if ("Polygon".equals(geometry.type())) {
+			addRings(geometry.coordinates(), rings);
+		}
+		else {
+			geometry.coordinates().forEach(polygon -> addRings(polygon, rings));
+		}
+		if (rings.isEmpty()) {
+			return null;
+		}
+		double minLon = Double.MAX_VALUE, minLat = Double.MAX_VALUE;
+		double maxLon = -Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+		for (double[] ring : rings) {
+			for (int i = 0; i < ring.length; i += 2) {
+				minLon = Math.min(minLon, ring[i]);
+				maxLon = Math.max(maxLon, ring[i]);
+				minLat = Math.min(minLat, ring[i + 1]);
+				maxLat = Math.max(maxLat, ring[i + 1]);
+			}
+		}
+		return new Shape(feature, minLon, minLat, maxLon, maxLat, rings.toArray(double[][]::new));
+	}
+
+	private static void addRings(JsonNode polygon, List<double[]> rings) {
+		for (JsonNode ring : polygon) {
+			if (ring.size() < 3) {
+				continue;
+			}
+			double[] points = new double[ring.size() * 2];
+			for (int i = 0; i < ring.size(); i++) {
+				points[2 * i] = ring.get(i).get(0).asDouble();
+				points[2 * i + 1] = ring.get(i).get(1).asDouble();
+			}
+			rings.add(points);
+		}
+	}
+
+}
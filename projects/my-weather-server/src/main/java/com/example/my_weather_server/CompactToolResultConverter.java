@@ -0,0 +1,271 @@
+package com.example.my_weather_server;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallback;
+import org.springframework.ai.tool.support.ToolDefinitions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands weather tool results to the model as a compact JSON projection within a token budget.
+ * <p>
+ * A forecast keeps only its first {@code maxPeriods} periods and, of each, only the configured
+ * fields; the precipitation map becomes a plain percentage. Alerts keep their event, severity,
+ * area and a shortened description. A batch of forecasts keeps each location's compact periods,
+ * or its error. Periods, alerts or locations are then dropped from the end until the
+ * result fits {@code tokenBudget}, and the count left out is reported as {@code omitted} so the
+ * model knows the list is incomplete. Other results are serialized as usual.
+ * <p>
+ * Token counts are estimated with the cl100k encoding, before (what the default converter would
+ * have sent) and after, and recorded as {@code weather.tools.result.tokens} tagged with the
+ * result type and {@code form=raw|compact}.
+ */
+@Component
+public class CompactToolResultConverter implements ToolCallResultConverter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompactToolResultConverter.class);
+
+	static final Set<String> PERIOD_FIELDS = Set.of("number", "name", "startTime", "endTime", "isDaytime",
+			"temperature", "temperatureUnit", "temperatureTrend", "precipitation", "windSpeed", "windDirection",
+			"icon", "shortForecast", "detailedForecast");
+
+	private static final int MAX_DESCRIPTION_CHARS = 280;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ToolCallResultConverter fallback = new DefaultToolCallResultConverter();
+
+	private final TokenCountEstimator tokens = new JTokkitTokenCountEstimator();
+
+	private final int maxPeriods;
+
+	private final List<String> periodFields;
+
+	private final int tokenBudget;
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public CompactToolResultConverter(@Value("${weather.tools.result.max-periods:4}") int maxPeriods,
+			@Value("${weather.tools.result.period-fields:name,temperature,temperatureUnit,precipitation,windSpeed,windDirection,shortForecast}") List<String> periodFields,
+			@Value("${weather.tools.result.token-budget:600}") int tokenBudget, MeterRegistry meterRegistry) {
+		for (String field : periodFields) {
+			if (!PERIOD_FIELDS.contains(field)) {
+				throw new IllegalArgumentException(
+						"Unknown forecast period field '" + field + "', expected one of " + PERIOD_FIELDS);
+			}
+		}
+		if (maxPeriods < 1 || tokenBudget < 1) {
+			throw new IllegalArgumentException("max-periods and token-budget must be positive");
+		}
+		this.maxPeriods = maxPeriods;
+		this.periodFields = List.copyOf(periodFields);
+		this.tokenBudget = tokenBudget;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Tool callbacks for the {@link Tool} methods of {@code toolObject} whose results go through
+	 * this converter.
+	 */
+	public List<ToolCallback> toolCallbacks(Object toolObject) {
+		var callbacks = new ArrayList<ToolCallback>();
+		for (Method method : ReflectionUtils.getDeclaredMethods(toolObject.getClass())) {
+			if (method.isAnnotationPresent(Tool.class)) {
+				callbacks.add(MethodToolCallback.builder()
+					.toolDefinition(ToolDefinitions.from(method))
+					.toolMetadata(ToolMetadata.from(method))
+					.toolMethod(method)
+					.toolObject(toolObject)
+					.toolCallResultConverter(this)
+					.build());
+			}
+		}
+		return callbacks;
+	}
+
+	@Override
+	public String convert(Object result, Type returnType) {
+		String compact;
+		if (result instanceof WeatherService.Forecast forecast) {
+			var periods = periods(forecast);
+			compact = fit("periods", periods.stream().limit(maxPeriods).map(this::period).toList(), periods.size());
+		}
+		else if (result instanceof WeatherService.Forecasts batch) {
+			var items = batch.forecasts().stream().map(this::location).toList();
+			compact = fit("forecasts", items, items.size());
+		}
+		else if (result instanceof WeatherService.Alert alert) {
+			var items = alerts(alert);
+			compact = fit("alerts", items, items.size());
+		}
+		else {
+			return fallback.convert(result, returnType);
+		}
+
+		String raw = fallback.convert(result, returnType);
+		int rawTokens = tokens.estimate(raw);
+		int compactTokens = tokens.estimate(compact);
+		String type = result.getClass().getSimpleName();
+		summary(type, "raw").record(rawTokens);
+		summary(type, "compact").record(compactTokens);
+		logger.info("{} tool result: {} tokens, {} after compaction", type, rawTokens, compactTokens);
+		return compact;
+	}
+
+	private ObjectNode location(WeatherService.LocationForecast forecast) {
+		ObjectNode node = objectMapper.createObjectNode();
+		node.put("latitude", forecast.location().latitude());
+		node.put("longitude", forecast.location().longitude());
+		if (forecast.forecast() != null) {
+			ArrayNode periods = node.putArray("periods");
+			periods(forecast.forecast()).stream().limit(maxPeriods).map(this::period).forEach(periods::add);
+		}
+		putIfPresent(node, "error", forecast.error());
+		return node;
+	}
+
+	private ObjectNode period(WeatherService.Forecast.Period period) {
+		ObjectNode node = objectMapper.createObjectNode();
+		for (String field : periodFields) {
+			Object value = switch (field) {
+				case "number" -> period.number();
+				case "name" -> period.name();
+				case "startTime" -> period.startTime();
+				case "endTime" -> period.endTime();
+				case "isDaytime" -> period.isDayTime();
+				case "temperature" -> period.temperature();
+				case "temperatureUnit" -> period.temperatureUnit();
+				case "temperatureTrend" -> period.temperatureTrend();
+				case "precipitation" -> precipitation(period.probabilityOfPrecipitation());
+				case "windSpeed" -> period.windSpeed();
+				case "windDirection" -> period.windDirection();
+				case "icon" -> period.icon();
+				case "shortForecast" -> period.shortForecast();
+				case "detailedForecast" -> period.detailedForecast();
+				default -> throw new IllegalStateException(field);
+			};
+			if (value != null) {
+				node.putPOJO(field, value);
+			}
+		}
+		return node;
+	}
+
+	private List<ObjectNode> alerts(WeatherService.Alert alert) {
+		var items = new ArrayList<ObjectNode>();
+		if (alert.features() == null) {
+			return items;
+		}
+		for (var feature : alert.features()) {
+			var properties = feature == null ? null : feature.properties();
+			if (properties == null) {
+				continue;
+			}
+			ObjectNode node = objectMapper.createObjectNode();
+			putIfPresent(node, "event", properties.event());
+			putIfPresent(node, "severity", properties.severity());
+			putIfPresent(node, "areaDesc", properties.areaDesc());
+			putIfPresent(node, "description", abbreviate(properties.description()));
+			items.add(node);
+		}
+		return items;
+	}
+
+	/**
+	 * The leading items that fit the budget, out of {@code total} available.
+	 */
+	private String fit(String listName, List<ObjectNode> items, int total) {
+		ObjectNode root = objectMapper.createObjectNode();
+		ArrayNode list = root.putArray(listName);
+		// Leave room for the envelope and the omitted count
+		int used = tokens.estimate("{\"" + listName + "\":[],\"omitted\":000}");
+		for (ObjectNode item : items) {
+			int cost = tokens.estimate(write(item)) + 1;
+			if (used + cost > tokenBudget) {
+				break;
+			}
+			list.add(item);
+			used += cost;
+		}
+		int omitted = total - list.size();
+		if (omitted > 0) {
+			root.put("omitted", omitted);
+		}
+		String json = write(root);
+		// Token estimates of the parts may undercount the whole slightly
+		while (tokens.estimate(json) > tokenBudget && !list.isEmpty()) {
+			list.remove(list.size() - 1);
+			root.put("omitted", ++omitted);
+			json = write(root);
+		}
+		return json;
+	}
+
+	private String write(Object value) {
+		try {
+			return objectMapper.writeValueAsString(value);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize tool result", e);
+		}
+	}
+
+	private DistributionSummary summary(String type, String form) {
+		return DistributionSummary.builder("weather.tools.result.tokens")
+			.tag("type", type)
+			.tag("form", form)
+			.description("Estimated tokens of weather tool results handed to the model")
+			.baseUnit("tokens")
+			.register(meterRegistry);
+	}
+
+	private static List<WeatherService.Forecast.Period> periods(WeatherService.Forecast forecast) {
+		return forecast.properties() == null || forecast.properties().periods() == null ? List.of()
+				: forecast.properties().periods();
+	}
+
+	private static Object precipitation(Map<?, ?> probabilityOfPrecipitation) {
+		return probabilityOfPrecipitation == null ? null : probabilityOfPrecipitation.get("value");
+	}
+
+	private static void putIfPresent(ObjectNode node, String field, String value) {
+		if (value != null && !value.isBlank()) {
+			node.put(field, value);
+		}
+	}
+
+	private static String abbreviate(String text) {
+		if (text == null) {
+			return null;
+		}
+		String flat = text.replaceAll("\\s+", " ").trim();
+		return flat.length() <= MAX_DESCRIPTION_CHARS ? flat : flat.substring(0, MAX_DESCRIPTION_CHARS - 1) + "…";
+	}
+
+}
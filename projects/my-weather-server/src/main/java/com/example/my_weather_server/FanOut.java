@@ -0,0 +1,152 @@
+package com.example.my_weather_server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs the same blocking call for many inputs at once, on a shared pool of {@code threads}
+ * platform threads.
+ * <p>
+ * A single {@link #map} runs at most {@code maxConcurrency} calls at a time: it starts that many
+ * workers, and each takes the next input once its previous call returns. A large batch therefore
+ * cannot take over the pool, and an upstream sees a bounded number of requests per batch. The
+ * batch ends at its {@code deadline}. Inputs not finished by then are reported as failed, and
+ * workers take no further inputs. Calls already running finish in the background, bounded by the
+ * client read timeout, and are not interrupted, because other callers may be coalesced onto them.
+ * Batches larger than {@code maxInputs} are rejected. Outcomes are counted as
+ * {@code weather.fanout.calls} tagged with the operation and {@code success}, {@code error} or
+ * {@code deadline}.
+ */
+@Component
+public class FanOut implements DisposableBean {
+
+	/**
+	 * The result for one input, or why there is none.
+	 */
+	public record Outcome<R>(R value, String error) {
+
+		public boolean succeeded() {
+			return error == null;
+		}
+	}
+
+	private final ExecutorService executor;
+
+	private final int maxInputs;
+
+	private final int maxConcurrency;
+
+	private final Duration deadline;
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public FanOut(@Value("${weather.batch.threads:64}") int threads,
+			@Value("${weather.batch.max-locations:50}") int maxInputs,
+			@Value("${weather.batch.max-concurrency:8}") int maxConcurrency,
+			@Value("${weather.batch.deadline:PT20S}") Duration deadline, MeterRegistry meterRegistry) {
+		var count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			var thread = new Thread(runnable, "weather-fanout-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.maxInputs = maxInputs;
+		this.maxConcurrency = maxConcurrency;
+		this.deadline = deadline;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Applies {@code call} to every input, in parallel, and returns the outcomes in input order.
+	 * A call that throws fails only its own input.
+	 * @throws IllegalArgumentException if there are more than {@code maxInputs} inputs
+	 */
+	public <T, R> List<Outcome<R>> map(String operation, List<T> inputs, Function<T, R> call) {
+		if (inputs.size() > maxInputs) {
+			throw new IllegalArgumentException("At most " + maxInputs + " inputs per batch, got " + inputs.size());
+		}
+		long deadlineNanos = System.nanoTime() + deadline.toNanos();
+		int size = inputs.size();
+		var outcomes = new AtomicReferenceArray<Outcome<R>>(size);
+		var next = new AtomicInteger();
+		var workers = new ArrayList<Future<?>>();
+		for (int w = 0; w < Math.min(maxConcurrency, size); w++) {
+			workers.add(executor.submit(() -> {
+				for (int i = next.getAndIncrement(); i < size; i = next.getAndIncrement()) {
+					try {
+						outcomes.set(i, new Outcome<>(call.apply(inputs.get(i)), null));
+					}
+					catch (RuntimeException e) {
+						outcomes.set(i, new Outcome<>(null, e.getMessage() != null ? e.getMessage() : e.toString()));
+					}
+				}
+			}));
+		}
+
+		try {
+			for (var worker : workers) {
+				worker.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}
+		}
+		catch (TimeoutException e) {
+			// Fall through: unfinished inputs are reported as missing the deadline
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException(operation + " fan-out failed", e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			// Queued or running workers stop taking inputs
+			next.set(size);
+		}
+
+		var results = new ArrayList<Outcome<R>>(size);
+		for (int i = 0; i < size; i++) {
+			var outcome = outcomes.get(i);
+			if (outcome == null) {
+				outcome = new Outcome<>(null, "No result within the deadline of " + deadline);
+				calls(operation, "deadline").increment();
+			}
+			else {
+				calls(operation, outcome.succeeded() ? "success" : "error").increment();
+			}
+			results.add(outcome);
+		}
+		return results;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private Counter calls(String operation, String outcome) {
+		return Counter.builder("weather.fanout.calls")
+			.tag("operation", operation)
+			.tag("outcome", outcome)
+			.description("Calls made as part of a parallel batch, by outcome")
+			.register(meterRegistry);
+	}
+
+}
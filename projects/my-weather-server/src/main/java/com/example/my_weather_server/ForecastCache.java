@@ -0,0 +1,186 @@
+package com.example.my_weather_server;
+
+import java.time.Clock;
+import java.util.Locale;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Forecasts by forecast URL, kept as long as the upstream {@code Cache-Control} or
+ * {@code Expires} headers allow.
+ * <p>
+ * A fresh entry is returned without any request. A stale entry that carries an {@code ETag} or
+ * {@code Last-Modified} is revalidated with a conditional request; a {@code 304 Not Modified}
+ * extends the cached forecast without transferring it again. {@code no-store} responses are never
+ * kept, and {@code no-cache} responses are revalidated on every use. Outcomes are counted as
+ * {@code weather.forecast.requests} tagged {@code fresh}, {@code revalidated} or {@code fetched}.
+ */
+public class ForecastCache {
+
+	private static final long NOT_CACHEABLE = Long.MIN_VALUE;
+
+	private record Entry(WeatherService.Forecast forecast, String etag, String lastModified, long freshUntil) {
+
+		boolean hasValidator() {
+			return etag != null || lastModified != null;
+		}
+	}
+
+	private final RestClient restClient;
+	private final Clock clock;
+	private final LruCache<String, Entry> entries;
+	private final Counter fresh;
+	private final Counter revalidated;
+	private final Counter fetched;
+
+	public ForecastCache(RestClient restClient, int maxEntries, MeterRegistry meterRegistry) {
+		this(restClient, maxEntries, meterRegistry, Clock.systemUTC());
+	}
+
+	ForecastCache(RestClient restClient, int maxEntries, MeterRegistry meterRegistry, Clock clock) {
+		this.restClient = restClient;
+		this.clock = clock;
+		this.entries = new LruCache<>("forecasts", maxEntries, meterRegistry);
+		this.fresh = counter(meterRegistry, "fresh", "Forecasts served from cache without a request");
+		this.revalidated = counter(meterRegistry, "revalidated", "Forecasts confirmed unchanged by a conditional request");
+		this.fetched = counter(meterRegistry, "fetched", "Forecasts downloaded in full");
+	}
+
+	/**
+	 * Returns the forecast at the given URL, from cache when still fresh.
+	 * @throws RestClientException if the request fails
+	 */
+	public WeatherService.Forecast get(String forecastUrl) {
+		long now = clock.millis();
+		Entry cached = entries.get(forecastUrl);
+		if (cached != null && now < cached.freshUntil()) {
+			fresh.increment();
+			return cached.forecast();
+		}
+		Entry validator = cached != null && cached.hasValidator() ? cached : null;
+
+		return restClient.get()
+			.uri(forecastUrl)
+			.headers(headers -> {
+				if (validator != null && validator.etag() != null) {
+					headers.setIfNoneMatch(validator.etag());
+				}
+				else if (validator != null) {
+					headers.set(HttpHeaders.IF_MODIFIED_SINCE, validator.lastModified());
+				}
+			})
+			.exchange((request, response) -> {
+				HttpHeaders headers = response.getHeaders();
+				if (validator != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					revalidated.increment();
+					store(forecastUrl, validator.forecast(), headers, validator, now);
+					return validator.forecast();
+				}
+				if (response.getStatusCode().isError()) {
+					throw new RestClientResponseException("Forecast request to " + forecastUrl + " failed",
+							response.getStatusCode(), response.getStatusText(), headers,
+							response.getBody().readAllBytes(), null);
+				}
+				WeatherService.Forecast forecast = response.bodyTo(WeatherService.Forecast.class);
+				if (forecast == null) {
+					throw new RestClientException("Empty forecast response from " + forecastUrl);
+				}
+				fetched.increment();
+				store(forecastUrl, forecast, headers, null, now);
+				return forecast;
+			});
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private void store(String forecastUrl, WeatherService.Forecast forecast, HttpHeaders headers, Entry previous,
+			long now) {
+		long freshUntil = freshUntil(headers, now);
+		String etag = headers.getETag() != null ? headers.getETag() : previous != null ? previous.etag() : null;
+		String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED) != null
+				? headers.getFirst(HttpHeaders.LAST_MODIFIED) : previous != null ? previous.lastModified() : null;
+		var entry = new Entry(forecast, etag, lastModified, freshUntil);
+		if (freshUntil == NOT_CACHEABLE || (freshUntil <= now && !entry.hasValidator())) {
+			entries.remove(forecastUrl);
+			return;
+		}
+		entries.put(forecastUrl, entry);
+	}
+
+	/**
+	 * When a response stops being fresh: {@code s-maxage} or {@code max-age} minus {@code Age},
+	 * else {@code Expires} relative to {@code Date}, else immediately.
+	 */
+	static long freshUntil(HttpHeaders headers, long now) {
+		String cacheControl = headers.getCacheControl();
+		if (cacheControl != null) {
+			long maxAge = -1;
+			long sharedMaxAge = -1;
+			for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+				directive = directive.trim();
+				if (directive.equals("no-store")) {
+					return NOT_CACHEABLE;
+				}
+				if (directive.equals("no-cache")) {
+					return now;
+				}
+				if (directive.startsWith("s-maxage=")) {
+					sharedMaxAge = seconds(directive.substring("s-maxage=".length()));
+				}
+				else if (directive.startsWith("max-age=")) {
+					maxAge = seconds(directive.substring("max-age=".length()));
+				}
+			}
+			// Every MCP client shares this cache, so the shared-cache lifetime wins
+			long lifetime = sharedMaxAge >= 0 ? sharedMaxAge : maxAge;
+			if (lifetime >= 0) {
+				long age = Math.max(0, seconds(headers.getFirst("Age")));
+				return now + Math.max(0, lifetime - age) * 1000;
+			}
+		}
+		long expires = headers.getExpires();
+		if (expires >= 0) {
+			long date = date(headers);
+			return now + expires - (date >= 0 ? date : now);
+		}
+		return now;
+	}
+
+	private static long seconds(String value) {
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value.trim().replace("\"", ""));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static long date(HttpHeaders headers) {
+		try {
+			return headers.getDate();
+		}
+		catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	private static Counter counter(MeterRegistry meterRegistry, String result, String description) {
+		return Counter.builder("weather.forecast.requests")
+			.tag("result", result)
+			.description(description)
+			.register(meterRegistry);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.example.my_weather_server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded map that evicts the least recently used entry once it is full.
+ * <p>
+ * Lookups reorder the entries, so reads and writes share one lock. Hits, misses and evictions are
+ * counted as {@code weather.cache.gets} and {@code weather.cache.evictions}, and the number of
+ * entries is published as {@code weather.cache.size}, all tagged with the cache name.
+ */
+public class LruCache<K, V> {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<K, V> entries;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+
+	public LruCache(String name, int maxEntries, MeterRegistry meterRegistry) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Cache " + name + " needs room for at least one entry");
+		}
+		this.hits = Counter.builder("weather.cache.gets").tag("cache", name).tag("result", "hit")
+			.description("Cache lookups that found an entry")
+			.register(meterRegistry);
+		this.misses = Counter.builder("weather.cache.gets").tag("cache", name).tag("result", "miss")
+			.description("Cache lookups that found nothing")
+			.register(meterRegistry);
+		this.evictions = Counter.builder("weather.cache.evictions").tag("cache", name)
+			.description("Least recently used entries dropped to stay within the size limit")
+			.register(meterRegistry);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() > maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+		Gauge.builder("weather.cache.size", this, LruCache::size).tag("cache", name)
+			.description("Entries held in the cache")
+			.register(meterRegistry);
+	}
+
+	public V get(K key) {
+		V value;
+		lock.lock();
+		try {
+			value = entries.get(key);
+		}
+		finally {
+			lock.unlock();
+		}
+		(value == null ? misses : hits).increment();
+		return value;
+	}
+
+	public void put(K key, V value) {
+		lock.lock();
+		try {
+			entries.put(key, value);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public void remove(K key) {
+		lock.lock();
+		try {
+			entries.remove(key);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return entries.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+}
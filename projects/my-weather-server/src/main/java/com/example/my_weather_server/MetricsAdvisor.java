@@ -0,0 +1,267 @@
+package com.example.my_weather_server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+
+/**
+ * Records chat calls as metrics instead of logging every request and response.
+ * <ul>
+ * <li>{@code weather.chat.latency}: time until the response, or the last chunk of a stream,
+ * tagged with {@code mode}, {@code outcome} and {@code exception}, which also gives the error
+ * rate</li>
+ * <li>{@code weather.chat.first-chunk}: time until the first chunk of a stream</li>
+ * <li>{@code weather.chat.tokens}: prompt, completion and total tokens reported by the model</li>
+ * <li>{@code weather.chat.tool-calls}: tool invocations, tagged with the tool name</li>
+ * </ul>
+ * Sits right in front of the model, so latency includes tool execution but not other advisors.
+ * Tools are counted by wrapping the tool callbacks of the request; tools resolved by name only
+ * are not counted.
+ * <p>
+ * With {@code payloadSampleRate} above zero, that fraction of exchanges is also logged in full.
+ * The request and response are handed to a bounded queue and rendered by a background thread, so
+ * the caller never waits for logging; when the queue is full the entry is dropped and counted as
+ * {@code weather.chat.payload-log{result=dropped}}.
+ */
+@Component
+public class MetricsAdvisor implements CallAdvisor, StreamAdvisor, DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(MetricsAdvisor.class);
+
+	private record Payload(String mode, ChatClientRequest request, Object response) {
+	}
+
+	private final MeterRegistry meterRegistry;
+
+	private final double payloadSampleRate;
+
+	private final BlockingQueue<Payload> payloads;
+
+	private final Thread payloadWriter;
+
+	private final Counter payloadsWritten;
+
+	private final Counter payloadsDropped;
+
+	@Autowired
+	public MetricsAdvisor(MeterRegistry meterRegistry,
+			@Value("${weather.chat.payload-logging.sample-rate:0}") double payloadSampleRate,
+			@Value("${weather.chat.payload-logging.queue-capacity:256}") int payloadQueueCapacity) {
+		this.meterRegistry = meterRegistry;
+		this.payloadSampleRate = payloadSampleRate;
+		this.payloads = new ArrayBlockingQueue<>(payloadQueueCapacity);
+		this.payloadsWritten = Counter.builder("weather.chat.payload-log").tag("result", "written")
+			.description("Sampled chat payloads written to the log")
+			.register(meterRegistry);
+		this.payloadsDropped = Counter.builder("weather.chat.payload-log").tag("result", "dropped")
+			.description("Sampled chat payloads dropped because the log queue was full")
+			.register(meterRegistry);
+		this.payloadWriter = new Thread(this::writePayloads, "chat-payload-log");
+		this.payloadWriter.setDaemon(true);
+		if (payloadSampleRate > 0) {
+			this.payloadWriter.start();
+		}
+	}
+
+	@Override
+	public String getName() {
+		return this.getClass().getSimpleName();
+	}
+
+	@Override
+	public int getOrder() {
+		// Just before the advisor that calls the model
+		return Ordered.LOWEST_PRECEDENCE - 1;
+	}
+
+	@Override
+	public @NonNull ChatClientResponse adviseCall(@NonNull ChatClientRequest chatClientRequest,
+			@NonNull CallAdvisorChain callAdvisorChain) {
+		var request = countingToolCalls(chatClientRequest);
+		Timer.Sample sample = Timer.start(meterRegistry);
+		ChatClientResponse response;
+		try {
+			response = callAdvisorChain.nextCall(request);
+		}
+		catch (RuntimeException e) {
+			sample.stop(latency("call", e));
+			throw e;
+		}
+		sample.stop(latency("call", null));
+		recordUsage(usage(response));
+		if (sampled()) {
+			enqueue(new Payload("call", request, response));
+		}
+		return response;
+	}
+
+	@Override
+	public @NonNull Flux<ChatClientResponse> adviseStream(@NonNull ChatClientRequest chatClientRequest,
+			@NonNull StreamAdvisorChain streamAdvisorChain) {
+		var request = countingToolCalls(chatClientRequest);
+		boolean sampled = sampled();
+		return Flux.defer(() -> {
+			Timer.Sample sample = Timer.start(meterRegistry);
+			var firstChunk = new AtomicBoolean(true);
+			var lastUsage = new AtomicReference<Usage>();
+			var text = sampled ? new StringBuilder() : null;
+			return streamAdvisorChain.nextStream(request).doOnNext(response -> {
+				if (firstChunk.compareAndSet(true, false)) {
+					sample.stop(Timer.builder("weather.chat.first-chunk")
+						.description("Time until the first chunk of a streamed chat response")
+						.register(meterRegistry));
+				}
+				var usage = usage(response);
+				if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+					lastUsage.set(usage);
+				}
+				if (text != null && response.chatResponse() != null && response.chatResponse().getResult() != null
+						&& response.chatResponse().getResult().getOutput().getText() != null) {
+					text.append(response.chatResponse().getResult().getOutput().getText());
+				}
+			}).doOnComplete(() -> {
+				sample.stop(latency("stream", null));
+				recordUsage(lastUsage.get());
+				if (text != null) {
+					enqueue(new Payload("stream", request, text));
+				}
+			}).doOnError(error -> sample.stop(latency("stream", error)));
+		});
+	}
+
+	@Override
+	public void destroy() {
+		payloadWriter.interrupt();
+	}
+
+	private ChatClientRequest countingToolCalls(ChatClientRequest request) {
+		ChatOptions options = request.prompt().getOptions();
+		if (!(options instanceof ToolCallingChatOptions toolOptions) || toolOptions.getToolCallbacks().isEmpty()) {
+			return request;
+		}
+		ToolCallingChatOptions counted = toolOptions.copy();
+		counted.setToolCallbacks(toolOptions.getToolCallbacks().stream().map(this::counting).toList());
+		return request.mutate().prompt(request.prompt().mutate().chatOptions(counted).build()).build();
+	}
+
+	private ToolCallback counting(ToolCallback delegate) {
+		Counter calls = Counter.builder("weather.chat.tool-calls")
+			.tag("tool", delegate.getToolDefinition().name())
+			.description("Tool invocations requested by the model")
+			.register(meterRegistry);
+		return new ToolCallback() {
+
+			@Override
+			public ToolDefinition getToolDefinition() {
+				return delegate.getToolDefinition();
+			}
+
+			@Override
+			public ToolMetadata getToolMetadata() {
+				return delegate.getToolMetadata();
+			}
+
+			@Override
+			public String call(String toolInput) {
+				calls.increment();
+				return delegate.call(toolInput);
+			}
+
+			@Override
+			public String call(String toolInput, ToolContext toolContext) {
+				calls.increment();
+				return delegate.call(toolInput, toolContext);
+			}
+		};
+	}
+
+	private Timer latency(String mode, Throwable error) {
+		return Timer.builder("weather.chat.latency")
+			.tag("mode", mode)
+			.tag("outcome", error == null ? "success" : "error")
+			.tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+			.description("Time until the chat model has answered, including tool calls")
+			.register(meterRegistry);
+	}
+
+	private void recordUsage(Usage usage) {
+		if (usage == null) {
+			return;
+		}
+		tokens("prompt", usage.getPromptTokens());
+		tokens("completion", usage.getCompletionTokens());
+		tokens("total", usage.getTotalTokens());
+	}
+
+	private void tokens(String type, Integer count) {
+		if (count != null && count > 0) {
+			Counter.builder("weather.chat.tokens")
+				.tag("type", type)
+				.description("Tokens reported by the chat model")
+				.baseUnit("tokens")
+				.register(meterRegistry)
+				.increment(count);
+		}
+	}
+
+	private static Usage usage(ChatClientResponse response) {
+		if (response == null || response.chatResponse() == null || response.chatResponse().getMetadata() == null) {
+			return null;
+		}
+		return response.chatResponse().getMetadata().getUsage();
+	}
+
+	private boolean sampled() {
+		return payloadSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < payloadSampleRate;
+	}
+
+	private void enqueue(Payload payload) {
+		if (!payloads.offer(payload)) {
+			payloadsDropped.increment();
+		}
+	}
+
+	private void writePayloads() {
+		try {
+			while (true) {
+				var payload = payloads.take();
+				logger.info("{} request: {}", payload.mode(), payload.request());
+				logger.info("{} response: {}", payload.mode(), payload.response());
+				payloadsWritten.increment();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -31,9 +31,11 @@ public class MyWeatherServerApplication {
 
 	@Bean
 	@Profile("!test")
-	public CommandLineRunner demo(ChatClient.Builder chatClientBuilder, WeatherService weatherService) {
+	public CommandLineRunner demo(ChatClient.Builder chatClientBuilder, WeatherService weatherService,
+			CompactToolResultConverter toolResultConverter, MetricsAdvisor metricsAdvisor) {
+		var weatherTools = toolResultConverter.toolCallbacks(weatherService);
 		return args -> {
-			ChatClient chatClient = chatClientBuilder.defaultAdvisors(new SimpleLoggerAdvisor()).build();
+			ChatClient chatClient = chatClientBuilder.defaultAdvisors(new SimpleLoggerAdvisor(), metricsAdvisor).build();
 			Scanner scanner = new Scanner(System.in);
 
 			System.out.println("Chat with the AI. Type 'exit' to quit.");
@@ -49,9 +51,8 @@ public class MyWeatherServerApplication {
 
 				//logger.info("User prompt: {}", userInput);
 				Object response = chatClient.prompt()
-					.advisors(new LoggerAdvisor())
 					.user(userInput)
-					.tools(weatherService)
+					.toolCallbacks(weatherTools)
 					.call()
 					.content();
 				
@@ -0,0 +1,102 @@
+package com.example.my_weather_server;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.web.client.RestClientException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Lets concurrent identical lookups share one upstream call.
+ * <p>
+ * The first caller for a key runs the call on its own thread; callers that arrive while it is in
+ * flight wait for the same result, or the same exception, for at most {@code maxWait}. Nothing is
+ * remembered once the call completes, so a failure is not replayed to later callers. Calls are
+ * counted as {@code weather.upstream.calls} and the callers that joined one as
+ * {@code weather.upstream.coalesced}, both tagged with the operation.
+ */
+public class SingleFlight<K, V> {
+
+	private final String operation;
+
+	private final Duration maxWait;
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter calls;
+
+	private final Counter coalesced;
+
+	public SingleFlight(String operation, Duration maxWait, MeterRegistry meterRegistry) {
+		this.operation = operation;
+		this.maxWait = maxWait;
+		this.calls = Counter.builder("weather.upstream.calls").tag("operation", operation)
+			.description("Upstream lookups actually performed")
+			.register(meterRegistry);
+		this.coalesced = Counter.builder("weather.upstream.coalesced").tag("operation", operation)
+			.description("Lookups that joined an identical one already in flight")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Runs {@code call} for the key, or waits for the identical call already in flight.
+	 * @throws RestClientException if waiting for another caller's result times out
+	 */
+	public V execute(K key, Supplier<V> call) {
+		var flight = new CompletableFuture<V>();
+		var existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			coalesced.increment();
+			return await(key, existing);
+		}
+
+		calls.increment();
+		try {
+			V result = call.get();
+			flight.complete(result);
+			return result;
+		}
+		catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	int inFlight() {
+		return inFlight.size();
+	}
+
+	private V await(K key, CompletableFuture<V> flight) {
+		try {
+			return flight.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new RestClientException(operation + " for " + key + " failed", e.getCause());
+		}
+		catch (TimeoutException e) {
+			throw new RestClientException("Timed out after " + maxWait + " waiting for " + operation + " of " + key, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RestClientException("Interrupted while waiting for " + operation + " of " + key, e);
+		}
+	}
+
+}
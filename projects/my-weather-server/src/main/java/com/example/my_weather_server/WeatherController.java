@@ -1,19 +1,38 @@
 package com.example.my_weather_server;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.tool.ToolCallback;
 
 @RestController
 public class WeatherController {
 
     private final WeatherService weatherService;
     private final ChatClient chatClient;
+    private final ObjectProvider<AlertIngestor> alertIngestor;
+    private final List<ToolCallback> weatherTools;
 
-    public WeatherController(WeatherService weatherService, ChatClient.Builder chatClientBuilder) {
+    public WeatherController(WeatherService weatherService, ChatClient.Builder chatClientBuilder,
+            ObjectProvider<AlertIngestor> alertIngestor, CompactToolResultConverter toolResultConverter,
+            MetricsAdvisor metricsAdvisor) {
         this.weatherService = weatherService;
-        this.chatClient = chatClientBuilder.build();
+        this.chatClient = chatClientBuilder.defaultAdvisors(metricsAdvisor).build();
+        this.alertIngestor = alertIngestor;
+        this.weatherTools = toolResultConverter.toolCallbacks(weatherService);
     }
 
     public record ChatRequest(String query) {}
@@ -24,16 +43,66 @@ public class WeatherController {
         return weatherService.getWeatherForecastByLocation(location);
     }
 
+    @PostMapping("/weather/forecasts")
+    public WeatherService.Forecasts getForecasts(@RequestBody WeatherService.ForecastsRequest request) {
+        try {
+            return weatherService.getWeatherForecasts(request);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
     @PostMapping("/weather/alerts")
     public WeatherService.Alert getAlerts(@RequestBody WeatherService.AlertRequest alertRequest) {
         return weatherService.getAlerts(alertRequest);
     }
 
+    @PostMapping("/weather/alerts/location")
+    public WeatherService.Alert getAlertsForLocation(@RequestBody WeatherService.Location location) {
+        return weatherService.getAlertsForLocation(location);
+    }
+
+    /**
+     * Server-sent events for every alert added, updated or removed by background ingestion,
+     * optionally only for one state. The event name is the change type. Events are sent from the
+     * ingestor's delivery pool; a client too slow to keep up is disconnected.
+     */
+    @GetMapping(value = "/weather/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(@RequestParam(required = false) String state) {
+        AlertIngestor ingestor = alertIngestor.getIfAvailable();
+        if (ingestor == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Alert ingestion is disabled, set weather.alerts.ingestion.enabled=true");
+        }
+        String filter = state == null || state.isBlank() ? null : state.trim().toUpperCase(Locale.ROOT);
+
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(30).toMillis());
+        Runnable unsubscribe = ingestor.subscribe(changes -> {
+            for (AlertIndex.Change change : changes) {
+                if (filter != null && !change.states().contains(filter)) {
+                    continue;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(change.type().name()).id(change.id()).data(change));
+                }
+                catch (IOException | IllegalStateException e) {
+                    // The client is gone; the ingestor drops the subscription and completes the stream
+                    throw new IllegalStateException("Alert stream closed", e);
+                }
+            }
+        }, emitter::complete);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
     @PostMapping("/weather/chat/forecast")
     public ChatResponse chatWithAi(@RequestBody ChatRequest request) {
         Object response = chatClient.prompt()
             .user(request.query())
-            .tools(weatherService)
+            .toolCallbacks(weatherTools)
             .call()
             .content();
         return new ChatResponse(response);
@@ -1,45 +1,155 @@
 package com.example.my_weather_server;
 
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class WeatherService {
 
-	private static final String BASE_URL = "https://api.weather.gov";
-
 	private final RestClient restClient;
 
+	private final LruCache<Gridpoint, Points.Props> gridpoints;
+
+	private final ForecastCache forecasts;
+
+	private final SingleFlight<Gridpoint, Points.Props> pointLookups;
+
+	private final SingleFlight<Gridpoint, Forecast> forecastLookups;
+
+	private final SingleFlight<String, Alert> alertLookups;
+
+	private final SingleFlight<Gridpoint, Alert> pointAlertLookups;
+
+	private final FanOut fanOut;
+
+	private AlertIngestor alertIngestor;
+
 	public record Location(
 		@JsonProperty(required = true, value = "latitude") double latitude, 
 		@JsonProperty(required = true, value = "longitude") double longitude) {
 	}
 
 	public record AlertRequest(
-		@JsonProperty(required = true, value = "state") String state) {
+		@JsonProperty(required = true, value = "state") String state,
+		@JsonProperty(required = false, value = "severity") String severity) {
+
+		public AlertRequest(String state) {
+			this(state, null);
+		}
+	}
+
+	public record ForecastsRequest(
+		@JsonProperty(required = true, value = "locations") List<Location> locations) {
+	}
+
+	/**
+	 * The forecast for one location of a batch, or the error that prevented it.
+	 */
+	public record LocationForecast(Location location, Forecast forecast, String error) {
+	}
+
+	public record Forecasts(List<LocationForecast> forecasts) {
+	}
+
+	/**
+	 * A latitude/longitude pair rounded to the 4 decimals the points API accepts, in units of
+	 * 1e-4 degrees. Nearby requests share one entry and one upstream lookup.
+	 */
+	record Gridpoint(long latitudeE4, long longitudeE4) {
+
+		static Gridpoint of(Location location) {
+			return new Gridpoint(Math.round(location.latitude() * 10_000), Math.round(location.longitude() * 10_000));
+		}
+
+		String latitude() {
+			return BigDecimal.valueOf(latitudeE4, 4).stripTrailingZeros().toPlainString();
+		}
+
+		String longitude() {
+			return BigDecimal.valueOf(longitudeE4, 4).stripTrailingZeros().toPlainString();
+		}
 	}
 
-	public WeatherService() {
+	public WeatherService(MeterRegistry meterRegistry,
+			@Value("${weather.api.base-url:https://api.weather.gov}") String baseUrl,
+			@Value("${weather.api.connect-timeout:PT5S}") Duration connectTimeout,
+			@Value("${weather.api.read-timeout:PT10S}") Duration readTimeout,
+			@Value("${weather.coalescing.max-wait:PT25S}") Duration maxCoalescingWait,
+			@Value("${weather.cache.gridpoints.max-entries:10000}") int maxGridpoints,
+			@Value("${weather.cache.forecasts.max-entries:1000}") int maxForecasts, FanOut fanOut) {
+
+		this.restClient = restClient(baseUrl, connectTimeout, readTimeout);
+		// The points-to-gridpoint mapping practically never changes, so it is only bounded by size
+		this.gridpoints = new LruCache<>("gridpoints", maxGridpoints, meterRegistry);
+		this.forecasts = new ForecastCache(restClient, maxForecasts, meterRegistry);
+		this.pointLookups = new SingleFlight<>("points", maxCoalescingWait, meterRegistry);
+		// A forecast is two upstream calls, so callers waiting on one may wait for both
+		this.forecastLookups = new SingleFlight<>("forecast", maxCoalescingWait, meterRegistry);
+		this.alertLookups = new SingleFlight<>("alerts", maxCoalescingWait, meterRegistry);
+		this.pointAlertLookups = new SingleFlight<>("point-alerts", maxCoalescingWait, meterRegistry);
+		this.fanOut = fanOut;
+	}
 
-		this.restClient = RestClient.builder()
-			.baseUrl(BASE_URL)
+	static RestClient restClient(String baseUrl, Duration connectTimeout, Duration readTimeout) {
+		var requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder().connectTimeout(connectTimeout).build());
+		requestFactory.setReadTimeout(readTimeout);
+		return RestClient.builder()
+			.baseUrl(baseUrl)
+			.requestFactory(requestFactory)
 			.defaultHeader("Accept", "application/geo+json")
 			.defaultHeader("User-Agent", "WeatherApiClient/1.0 (shuhai.miao@gmail.com)")
 			.build();
 	}
 
+	/**
+	 * Serve alerts from the background-ingested index while it is current.
+	 */
+	@Autowired(required = false)
+	void setAlertIngestor(AlertIngestor alertIngestor) {
+		this.alertIngestor = alertIngestor;
+	}
+
 	@JsonIgnoreProperties(ignoreUnknown = true)
 	public record Points(@JsonProperty("properties") Props properties) {
 		@JsonIgnoreProperties(ignoreUnknown = true)
-		public record Props(@JsonProperty("forecast") String forecast) {
+		public record Props(@JsonProperty("forecast") String forecast,
+				@JsonProperty("forecastZone") String forecastZone, @JsonProperty("county") String county,
+				@JsonProperty("fireWeatherZone") String fireWeatherZone) {
+
+			/**
+			 * UGC codes of the zones containing the point, e.g. CAZ041 and CAC037, taken from the
+			 * last segment of each zone URL.
+			 */
+			Set<String> zones() {
+				var zones = new LinkedHashSet<String>();
+				for (String url : new String[] { forecastZone, county, fireWeatherZone }) {
+					if (url != null && !url.isBlank()) {
+						zones.add(url.substring(url.lastIndexOf('/') + 1).toUpperCase(Locale.ROOT));
+					}
+				}
+				return zones;
+			}
 		}
 	}
 
@@ -66,18 +176,37 @@ public class WeatherService {
 	public record Alert(@JsonProperty("features") List<Feature> features) {
 
 		@JsonIgnoreProperties(ignoreUnknown = true)
-		public record Feature(@JsonProperty("properties") Properties properties) {
+		public record Feature(@JsonProperty("properties") Properties properties,
+				@JsonProperty(value = "geometry", access = JsonProperty.Access.WRITE_ONLY) Geometry geometry) {
+		}
+
+		/**
+		 * GeoJSON area of an alert, a Polygon or MultiPolygon of longitude/latitude pairs. Alerts
+		 * issued for whole forecast zones carry no geometry.
+		 */
+		@JsonIgnoreProperties(ignoreUnknown = true)
+		public record Geometry(@JsonProperty("type") String type, @JsonProperty("coordinates") JsonNode coordinates) {
 		}
 
 		@JsonIgnoreProperties(ignoreUnknown = true)
-		public record Properties(@JsonProperty("event") String event, @JsonProperty("areaDesc") String areaDesc,
-				@JsonProperty("severity") String severity, @JsonProperty("description") String description,
-				@JsonProperty("instruction") String instruction) {
+		public record Properties(@JsonProperty("id") String id, @JsonProperty("event") String event,
+				@JsonProperty("areaDesc") String areaDesc, @JsonProperty("severity") String severity,
+				@JsonProperty("description") String description, @JsonProperty("instruction") String instruction,
+				@JsonProperty(value = "geocode", access = JsonProperty.Access.WRITE_ONLY) Geocode geocode) {
+		}
+
+		/**
+		 * Zones an alert covers. A UGC code starts with the two-letter state, e.g. CAZ041.
+		 */
+		@JsonIgnoreProperties(ignoreUnknown = true)
+		public record Geocode(@JsonProperty("UGC") List<String> ugc) {
 		}
 	}
 
 	/**
-	 * Get forecast for a specific latitude/longitude
+	 * Get forecast for a specific latitude/longitude. The gridpoint lookup is cached per rounded
+	 * location and the forecast per the upstream cache headers, so a repeat costs at most one
+	 * conditional request. Concurrent lookups for the same rounded location share one.
 	 * @param location Latitude and Longitude of the location
 	 * @return The forecast for the given location
 	 * @throws RestClientException if the request fails
@@ -85,27 +214,118 @@ public class WeatherService {
 	@Tool(name = "getWeatherForecast", description = "Get weather forecast for a specific latitude/longitude")
 	public Forecast getWeatherForecastByLocation(Location location) {
 
-		var points = restClient.get()
-			.uri("/points/{latitude},{longitude}", location.latitude(), location.longitude())
-			.retrieve()
-			.body(Points.class);
+		var gridpoint = Gridpoint.of(location);
+		return forecastLookups.execute(gridpoint, () -> forecasts.get(forecastUrl(gridpoint)));
+	}
 
-		var forecast = restClient.get().uri(points.properties().forecast()).retrieve().body(Forecast.class);
+	/**
+	 * Get forecasts for several locations at once. Locations are looked up in parallel, a bounded
+	 * number at a time, until the batch deadline; a location that fails or is not done by then
+	 * carries an error instead of a forecast, and the others are still returned.
+	 * @param request The locations, at most {@code weather.batch.max-locations}
+	 * @return One entry per location, in request order
+	 * @throws IllegalArgumentException if there are too many locations
+	 */
+	@Tool(name = "getWeatherForecasts", description = "Get weather forecasts for several latitude/longitude locations at once. A location that could not be looked up has an error instead of a forecast")
+	public Forecasts getWeatherForecasts(ForecastsRequest request) {
+		List<Location> locations = request.locations() == null ? List.of() : request.locations();
+		var outcomes = fanOut.map("forecast", locations, this::getWeatherForecastByLocation);
+		var forecasts = new ArrayList<LocationForecast>(locations.size());
+		for (int i = 0; i < locations.size(); i++) {
+			var outcome = outcomes.get(i);
+			forecasts.add(new LocationForecast(locations.get(i), outcome.value(), outcome.error()));
+		}
+		return new Forecasts(forecasts);
+	}
 
-		return forecast;
+	private String forecastUrl(Gridpoint gridpoint) {
+		var point = point(gridpoint);
+		if (point.forecast() == null) {
+			throw new RestClientException(
+					"No forecast available for " + gridpoint.latitude() + "," + gridpoint.longitude());
+		}
+		return point.forecast();
+	}
+
+	private Points.Props point(Gridpoint gridpoint) {
+		var cached = gridpoints.get(gridpoint);
+		if (cached != null) {
+			return cached;
+		}
+		return pointLookups.execute(gridpoint, () -> {
+			var points = restClient.get()
+				.uri("/points/{latitude},{longitude}", gridpoint.latitude(), gridpoint.longitude())
+				.retrieve()
+				.body(Points.class);
+			if (points == null || points.properties() == null) {
+				throw new RestClientException("No point data for " + gridpoint.latitude() + "," + gridpoint.longitude());
+			}
+			gridpoints.put(gridpoint, points.properties());
+			return points.properties();
+		});
 	}
 
 	/**
-	 * Get alerts for a specific area
+	 * Get alerts for a specific area, optionally only those of one severity. Answered from the
+	 * ingested alert index when background ingestion is on and current; otherwise concurrent
+	 * lookups for the same state share one request.
 	 * @param request Area code. Two-letter US state code (e.g. CA, NY)
 	 * @return Human readable alert information
 	 * @throws RestClientException if the request fails
 	 */
-	@Tool(description = "Get weather alerts for a US state. Input is Two-letter US state code (e.g. CA, NY)")
+	@Tool(description = "Get weather alerts for a US state. Input is Two-letter US state code (e.g. CA, NY) and an optional severity (Extreme, Severe, Moderate, Minor)")
 	public Alert getAlerts(AlertRequest request) {
-		Alert alert = restClient.get().uri("/alerts/active/area/{state}", request.state()).retrieve().body(Alert.class);
+		String state = request.state() == null ? "" : request.state().trim().toUpperCase(Locale.ROOT);
+		String severity = request.severity() == null || request.severity().isBlank() ? null : request.severity().trim();
+
+		var index = alertIngestor == null ? null : alertIngestor.current();
+		if (index != null) {
+			return index.alerts(state, severity);
+		}
+
+		var alert = alertLookups.execute(state,
+				() -> restClient.get().uri("/alerts/active/area/{state}", state).retrieve().body(Alert.class));
+		if (severity == null || alert == null || alert.features() == null) {
+			return alert;
+		}
+		return new Alert(alert.features()
+			.stream()
+			.filter(feature -> feature.properties() != null && severity.equalsIgnoreCase(feature.properties().severity()))
+			.toList());
+	}
+
+	/**
+	 * Get the active alerts whose area contains a latitude/longitude. When background ingestion is
+	 * on ({@code weather.alerts.ingestion.enabled}, off by default) and the index is current, this is
+	 * answered from memory: alerts with a polygon are matched by the spatial index, and alerts issued
+	 * only for forecast zones or counties are matched by the zones of the point, from the cached
+	 * points lookup. Otherwise, or when the zones of the point cannot be looked up, upstream is
+	 * asked for the rounded point.
+	 * @param location Latitude and Longitude of the location
+	 * @return The alerts covering the location
+	 * @throws RestClientException if the request fails
+	 */
+	@Tool(name = "getAlertsForLocation", description = "Get active weather alerts covering a specific latitude/longitude, including alerts issued for whole forecast zones or counties")
+	public Alert getAlertsForLocation(Location location) {
+		var gridpoint = Gridpoint.of(location);
+		var index = alertIngestor == null ? null : alertIngestor.current();
+		if (index != null) {
+			if (!index.hasZoneAlerts()) {
+				return index.alertsAt(location.latitude(), location.longitude(), Set.of());
+			}
+			try {
+				return index.alertsAt(location.latitude(), location.longitude(), point(gridpoint).zones());
+			}
+			catch (RestClientException e) {
+				// Without the zones of the point the index cannot rule out zone-only alerts
+			}
+		}
 
-		return alert;
+		return pointAlertLookups.execute(gridpoint,
+				() -> restClient.get()
+					.uri("/alerts/active?point={latitude},{longitude}", gridpoint.latitude(), gridpoint.longitude())
+					.retrieve()
+					.body(Alert.class));
 	}
 
 }
@@ -0,0 +1,303 @@
+package com.example.my_weather_server;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertIngestorTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(AlertIngestorTests.class);
+
+	private static final String HEAT_CA = alert("urn:1", "Heat Advisory", "Moderate", "CAZ041", "CAZ042");
+
+	private static final String FLOOD_CA_NV = alert("urn:2", "Flood Warning", "Severe", "CAC037", "NVC003");
+
+	private static final String WIND_TX = alert("urn:3", "Wind Advisory", "Minor", "TXZ211");
+
+	private static final String TORNADO_TX = """
+			{"properties":{"id":"urn:4","event":"Tornado Warning","areaDesc":"Somewhere","severity":"Extreme","geocode":{"UGC":["TXC001"]}},
+			 "geometry":{"type":"Polygon","coordinates":[[[-100,30],[-98,30],[-98,32],[-100,32],[-100,30]]]}}
+			""";
+
+	private final MutableClock clock = new MutableClock();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final AtomicReference<String> feed = new AtomicReference<>(feed(HEAT_CA, FLOOD_CA_NV));
+
+	private final List<String> conditionalHeaders = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger areaRequests = new AtomicInteger();
+
+	private final AtomicInteger pointRequests = new AtomicInteger();
+
+	private final AtomicInteger pointsLookups = new AtomicInteger();
+
+	private StubUpstream upstream;
+
+	private String baseUrl;
+
+	private AlertIngestor ingestor;
+
+	@BeforeEach
+	void startUpstream() throws IOException {
+		upstream = new StubUpstream().route("/alerts/active", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String body;
+			if (path.startsWith("/alerts/active/area/")) {
+				areaRequests.incrementAndGet();
+				body = feed(WIND_TX);
+			}
+			else if (exchange.getRequestURI().getQuery() != null) {
+				pointRequests.incrementAndGet();
+				body = feed(WIND_TX);
+			}
+			else {
+				body = feed.get();
+				String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+				String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+				conditionalHeaders.add(String.valueOf(ifNoneMatch));
+				exchange.getResponseHeaders().add("ETag", etag);
+				if (etag.equals(ifNoneMatch)) {
+					StubUpstream.respond(exchange, 304, null);
+					return;
+				}
+			}
+			StubUpstream.respond(exchange, 200, body);
+		}).route("/points/", exchange -> {
+			pointsLookups.incrementAndGet();
+			switch (exchange.getRequestURI().getPath()) {
+				case "/points/34.05,-118.25" -> StubUpstream.respond(exchange, 200, points("CAZ041", "CAC037"));
+				case "/points/31,-99" -> StubUpstream.respond(exchange, 200, points("TXZ211", "TXC001"));
+				default -> StubUpstream.respond(exchange, 404, "{}");
+			}
+		});
+		baseUrl = upstream.baseUrl();
+		ingestor = new AlertIngestor(WeatherService.restClient(baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5)),
+				Duration.ofSeconds(30), Duration.ofMinutes(5), 4, 2, meterRegistry, clock);
+	}
+
+	@AfterEach
+	void stopUpstream() {
+		ingestor.destroy();
+		upstream.close();
+	}
+
+	@Test
+	void getAlertsIsAnsweredFromTheIndex() {
+		ingestor.poll();
+		var weatherService = new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 100, 100, new FanOut(1, 50, 1, Duration.ofSeconds(5), meterRegistry));
+		weatherService.setAlertIngestor(ingestor);
+
+		assertThat(events(weatherService.getAlerts(new WeatherService.AlertRequest("ca"))))
+			.containsExactly("Heat Advisory", "Flood Warning");
+		assertThat(events(weatherService.getAlerts(new WeatherService.AlertRequest("CA", "severe"))))
+			.containsExactly("Flood Warning");
+		assertThat(events(weatherService.getAlerts(new WeatherService.AlertRequest("NV")))).containsExactly("Flood Warning");
+		assertThat(events(weatherService.getAlerts(new WeatherService.AlertRequest("NY")))).isEmpty();
+		assertThat(areaRequests).hasValue(0);
+
+		int lookups = 1_000_000;
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			weatherService.getAlerts(new WeatherService.AlertRequest(i % 2 == 0 ? "CA" : "NV"));
+		}
+		long elapsed = System.nanoTime() - start;
+		logger.info("{} getAlerts lookups from the index in {}ms ({}ns each)", lookups,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), elapsed / lookups);
+	}
+
+	@Test
+	void getAlertsForLocationMatchesPolygonsAndZoneOnlyAlertsFromTheIndex() {
+		feed.set(feed(HEAT_CA, FLOOD_CA_NV, TORNADO_TX));
+		ingestor.poll();
+		var weatherService = new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 100, 100, new FanOut(1, 50, 1, Duration.ofSeconds(5), meterRegistry));
+		weatherService.setAlertIngestor(ingestor);
+
+		// Los Angeles lies in CAZ041 and CAC037, which only zone-only alerts cover
+		assertThat(events(weatherService.getAlertsForLocation(new WeatherService.Location(34.05, -118.25))))
+			.containsExactly("Heat Advisory", "Flood Warning");
+		// The tornado polygon covers the point; its county code is not matched as a zone
+		assertThat(events(weatherService.getAlertsForLocation(new WeatherService.Location(31, -99))))
+			.containsExactly("Tornado Warning");
+		assertThat(events(weatherService.getAlertsForLocation(new WeatherService.Location(34.05, -118.25))))
+			.containsExactly("Heat Advisory", "Flood Warning");
+
+		assertThat(pointsLookups).hasValue(2);
+		assertThat(pointRequests).hasValue(0);
+	}
+
+	@Test
+	void getAlertsForLocationFallsBackUpstreamWhenTheZonesOfThePointAreUnknown() {
+		ingestor.poll();
+		var weatherService = new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 100, 100, new FanOut(1, 50, 1, Duration.ofSeconds(5), meterRegistry));
+		weatherService.setAlertIngestor(ingestor);
+
+		assertThat(events(weatherService.getAlertsForLocation(new WeatherService.Location(40.71, -74.01))))
+			.containsExactly("Wind Advisory");
+		assertThat(pointsLookups).hasValue(1);
+		assertThat(pointRequests).hasValue(1);
+	}
+
+	@Test
+	void unchangedFeedIsRevalidatedWithTheETag() {
+		ingestor.poll();
+		var first = ingestor.current();
+		clock.advance(Duration.ofMinutes(1));
+		ingestor.poll();
+
+		assertThat(conditionalHeaders).hasSize(2);
+		assertThat(conditionalHeaders.get(0)).isEqualTo("null");
+		assertThat(conditionalHeaders.get(1)).startsWith("\"");
+		assertThat(ingestor.current().validatedAt()).isAfter(first.validatedAt());
+		assertThat(ingestor.current().alerts("CA", null)).isSameAs(first.alerts("CA", null));
+		assertThat(meterRegistry.get("weather.alerts.ingestion.polls").tag("result", "not-modified").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void subscribersAreToldWhatChanged() {
+		var received = new CopyOnWriteArrayList<AlertIndex.Change>();
+		ingestor.subscribe(received::addAll);
+		ingestor.poll();
+		await(() -> received.size() == 2);
+		received.clear();
+
+		feed.set(feed(alert("urn:1", "Heat Advisory", "Severe", "CAZ041", "CAZ042"), WIND_TX));
+		ingestor.poll();
+		await(() -> received.size() == 3);
+
+		assertThat(received).extracting(change -> change.type() + " " + change.id())
+			.containsExactlyInAnyOrder("UPDATED urn:1", "ADDED urn:3", "REMOVED urn:2");
+		assertThat(received).filteredOn(change -> change.id().equals("urn:2"))
+			.singleElement()
+			.satisfies(change -> assertThat(change.states()).containsExactlyInAnyOrder("CA", "NV"));
+	}
+
+	@Test
+	void slowSubscriberIsDroppedWithoutHoldingUpPollingOrOthers() throws InterruptedException {
+		var release = new CountDownLatch(1);
+		var dropped = new CountDownLatch(1);
+		var received = new CopyOnWriteArrayList<AlertIndex.Change>();
+		ingestor.subscribe(changes -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, dropped::countDown);
+		ingestor.subscribe(received::addAll);
+
+		// The slow subscriber holds at most one change set, four more fill its queue and the sixth overflows it
+		var expected = new ArrayList<String>();
+		for (int i = 0; i < 6; i++) {
+			feed.set(feed(alert("urn:" + i, "Heat Advisory", "Moderate", "CAZ041")));
+			ingestor.poll();
+			expected.add("ADDED urn:" + i);
+			if (i > 0) {
+				expected.add("REMOVED urn:" + (i - 1));
+			}
+		}
+		release.countDown();
+
+		assertThat(dropped.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(meterRegistry.get("weather.alerts.subscribers.dropped").counter().count()).isEqualTo(1);
+		await(() -> received.size() == expected.size());
+		assertThat(received).extracting(change -> change.type() + " " + change.id()).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void staleIndexFallsBackToTheUpstream() {
+		ingestor.poll();
+		var weatherService = new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 100, 100, new FanOut(1, 50, 1, Duration.ofSeconds(5), meterRegistry));
+		weatherService.setAlertIngestor(ingestor);
+
+		clock.advance(Duration.ofMinutes(6));
+
+		assertThat(ingestor.current()).isNull();
+		assertThat(events(weatherService.getAlerts(new WeatherService.AlertRequest("TX")))).containsExactly("Wind Advisory");
+		assertThat(areaRequests).hasValue(1);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+	private static List<String> events(WeatherService.Alert alert) {
+		return alert.features().stream().map(feature -> feature.properties().event()).toList();
+	}
+
+	private static String feed(String... alerts) {
+		return "{\"features\":[" + String.join(",", alerts) + "]}";
+	}
+
+	private static String alert(String id, String event, String severity, String... zones) {
+		return """
+				{"properties":{"id":"%s","event":"%s","areaDesc":"Somewhere","severity":"%s","geocode":{"UGC":["%s"]}}}
+				""".formatted(id, event, severity, String.join("\",\"", zones));
+	}
+
+	private static String points(String forecastZone, String county) {
+		return """
+				{"properties":{"forecastZone":"https://api.weather.gov/zones/forecast/%s","county":"https://api.weather.gov/zones/county/%s"}}
+				""".formatted(forecastZone, county);
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-05T08:00:00Z").toEpochMilli());
+
+		void advance(Duration duration) {
+			millis.addAndGet(duration.toMillis());
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis.get());
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.example.my_weather_server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.my_weather_server.WeatherService.Alert;
+
+/**
+ * Point lookups against thousands of random alert polygons spread over the continental US,
+ * compared with scanning every polygon.
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.my_weather_server.AlertSpatialIndexBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertSpatialIndexBenchmark {
+
+	@Param({ "1000", "5000" })
+	int polygons;
+
+	private AlertSpatialIndex index;
+
+	private AlertSpatialIndex singleCell;
+
+	private double[][] points;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		var random = new Random(42);
+		List<Alert.Feature> features = new ArrayList<>(polygons);
+		for (int i = 0; i < polygons; i++) {
+			features.add(randomPolygon(random, i));
+		}
+		index = AlertSpatialIndex.of(features);
+		// One cell covering everything is the same as testing every polygon
+		singleCell = AlertSpatialIndex.of(features, 360);
+		points = new double[4096][];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new double[] { 25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57 };
+		}
+	}
+
+	@Benchmark
+	public Alert gridLookup() {
+		var point = points[next++ & (points.length - 1)];
+		return index.containing(point[0], point[1]);
+	}
+
+	@Benchmark
+	public Alert fullScan() {
+		var point = points[next++ & (points.length - 1)];
+		return singleCell.containing(point[0], point[1]);
+	}
+
+	/**
+	 * A warning-sized polygon (up to about 1 degree across) with 8 to 40 vertices.
+	 */
+	private static Alert.Feature randomPolygon(Random random, int id) {
+		double centerLat = 25 + random.nextDouble() * 24;
+		double centerLon = -124 + random.nextDouble() * 57;
+		int vertices = 8 + random.nextInt(33);
+		var ring = new StringBuilder("[[");
+		for (int v = 0; v <= vertices; v++) {
+			double angle = 2 * Math.PI * (v % vertices) / vertices;
+			double radius = 0.1 + random.nextDouble() * 0.4;
+			if (v > 0) {
+				ring.append(',');
+			}
+			ring.append('[').append(centerLon + radius * Math.cos(angle)).append(',')
+				.append(centerLat + radius * Math.sin(angle)).append(']');
+		}
+		ring.append("]]");
+		return AlertSpatialIndexTests.feature("alert-" + id, "Polygon", ring.toString());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(AlertSpatialIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
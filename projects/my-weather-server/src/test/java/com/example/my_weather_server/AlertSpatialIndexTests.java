@@ -0,0 +1,72 @@
+package com.example.my_weather_server;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.my_weather_server.WeatherService.Alert;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertSpatialIndexTests {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Test
+	void findsThePolygonsContainingAPoint() {
+		var index = AlertSpatialIndex.of(List.of(
+				feature("square", "Polygon", "[[[-100,30],[-98,30],[-98,32],[-100,32],[-100,30]]]"),
+				feature("triangle", "Polygon", "[[[-99,31],[-97,31],[-99,33],[-99,31]]]"),
+				feature("zone-only", null, null)));
+
+		assertThat(events(index.containing(30.5, -99.5))).containsExactly("square");
+		assertThat(events(index.containing(31.5, -98.5))).containsExactly("square", "triangle");
+		assertThat(events(index.containing(32.5, -97.9))).isEmpty();
+		assertThat(events(index.containing(45, -120))).isEmpty();
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	void respectsHolesAndMultiPolygonParts() {
+		var index = AlertSpatialIndex.of(List.of(
+				feature("donut", "Polygon",
+						"[[[0,0],[10,0],[10,10],[0,10],[0,0]],[[4,4],[6,4],[6,6],[4,6],[4,4]]]"),
+				feature("islands", "MultiPolygon",
+						"[[[[20,0],[21,0],[21,1],[20,1],[20,0]]],[[[30,0],[31,0],[31,1],[30,1],[30,0]]]]")));
+
+		assertThat(events(index.containing(2, 2))).containsExactly("donut");
+		assertThat(events(index.containing(5, 5))).isEmpty();
+		assertThat(events(index.containing(0.5, 20.5))).containsExactly("islands");
+		assertThat(events(index.containing(0.5, 30.5))).containsExactly("islands");
+		assertThat(events(index.containing(0.5, 25))).isEmpty();
+	}
+
+	@Test
+	void polygonsSpanningManyCellsAreFoundFromEachOfThem() {
+		var index = AlertSpatialIndex.of(List.of(feature("wide", "Polygon",
+				"[[[-120,30],[-80,30],[-80,40],[-120,40],[-120,30]]]")), 0.25);
+
+		for (double lon = -119.9; lon < -80; lon += 0.37) {
+			assertThat(events(index.containing(35, lon))).containsExactly("wide");
+		}
+	}
+
+	static Alert.Feature feature(String event, String type, String coordinates) {
+		try {
+			var geometry = type == null ? null
+					: new Alert.Geometry(type, MAPPER.readTree(coordinates));
+			return new Alert.Feature(new Alert.Properties(event, event, "Somewhere", "Moderate", null, null, null),
+					geometry);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static List<String> events(Alert alert) {
+		return alert.features().stream().map(feature -> feature.properties().event()).toList();
+	}
+
+}
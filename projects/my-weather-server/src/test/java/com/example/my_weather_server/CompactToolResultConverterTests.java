@@ -0,0 +1,139 @@
+package com.example.my_weather_server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+
+import com.example.my_weather_server.WeatherService.Alert;
+import com.example.my_weather_server.WeatherService.Forecast;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class CompactToolResultConverterTests {
+
+	private static final List<String> FIELDS = List.of("name", "temperature", "temperatureUnit", "precipitation",
+			"windSpeed", "windDirection", "shortForecast");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void keepsTheFirstPeriodsAndConfiguredFields() throws Exception {
+		var converter = new CompactToolResultConverter(4, FIELDS, 600, meterRegistry);
+
+		JsonNode result = objectMapper.readTree(converter.convert(forecast(14), Forecast.class));
+
+		assertThat(result.get("periods")).hasSize(4);
+		assertThat(result.get("omitted").asInt()).isEqualTo(10);
+		JsonNode first = result.get("periods").get(0);
+		assertThat(first.get("name").asText()).isEqualTo("Period 1");
+		assertThat(first.get("precipitation").asInt()).isEqualTo(20);
+		assertThat(first.has("detailedForecast")).isFalse();
+		assertThat(first.has("icon")).isFalse();
+
+		double raw = meterRegistry.get("weather.tools.result.tokens").tags("type", "Forecast", "form", "raw")
+			.summary().totalAmount();
+		double compact = meterRegistry.get("weather.tools.result.tokens").tags("type", "Forecast", "form", "compact")
+			.summary().totalAmount();
+		assertThat(compact).isLessThan(raw / 10);
+	}
+
+	@Test
+	void dropsPeriodsThatDoNotFitTheBudget() throws Exception {
+		var converter = new CompactToolResultConverter(14, List.of("name", "detailedForecast"), 150, meterRegistry);
+
+		String json = converter.convert(forecast(14), Forecast.class);
+		JsonNode result = objectMapper.readTree(json);
+
+		assertThat(meterRegistry.get("weather.tools.result.tokens").tags("form", "compact").summary().max())
+			.isLessThanOrEqualTo(150);
+		assertThat(result.get("periods").size()).isBetween(1, 3);
+		assertThat(result.get("periods").size() + result.get("omitted").asInt()).isEqualTo(14);
+		assertThat(result.get("periods").get(0).get("name").asText()).isEqualTo("Period 1");
+	}
+
+	@Test
+	void shortensAlerts() throws Exception {
+		var converter = new CompactToolResultConverter(4, FIELDS, 600, meterRegistry);
+		var properties = new Alert.Properties("urn:1", "Heat Advisory", "Inland Empire", "Moderate", "Hot. ".repeat(200),
+				"Drink water.", null);
+
+		JsonNode result = objectMapper.readTree(
+				converter.convert(new Alert(List.of(new Alert.Feature(properties, null))), Alert.class));
+
+		JsonNode alert = result.get("alerts").get(0);
+		assertThat(alert.get("event").asText()).isEqualTo("Heat Advisory");
+		assertThat(alert.get("description").asText()).hasSize(280).endsWith("…");
+		assertThat(alert.has("id")).isFalse();
+		assertThat(result.has("omitted")).isFalse();
+	}
+
+	@Test
+	void keepsLocationsAndTheirErrorsInABatch() throws Exception {
+		var converter = new CompactToolResultConverter(2, FIELDS, 600, meterRegistry);
+		var seattle = new WeatherService.Location(47.6062, -122.3321);
+		var nowhere = new WeatherService.Location(0, 0);
+
+		JsonNode result = objectMapper.readTree(converter.convert(new WeatherService.Forecasts(
+				List.of(new WeatherService.LocationForecast(seattle, forecast(14), null),
+						new WeatherService.LocationForecast(nowhere, null, "404 Not Found"))),
+				WeatherService.Forecasts.class));
+
+		assertThat(result.get("forecasts")).hasSize(2);
+		assertThat(result.get("forecasts").get(0).get("periods")).hasSize(2);
+		assertThat(result.get("forecasts").get(0).get("latitude").asDouble()).isEqualTo(47.6062);
+		assertThat(result.get("forecasts").get(1).get("error").asText()).isEqualTo("404 Not Found");
+		assertThat(result.get("forecasts").get(1).has("periods")).isFalse();
+	}
+
+	@Test
+	void leavesOtherResultsAlone() {
+		var converter = new CompactToolResultConverter(4, FIELDS, 600, meterRegistry);
+
+		assertThat(converter.convert(Map.of("ok", true), Map.class)).isEqualTo("{\"ok\":true}");
+	}
+
+	@Test
+	void rejectsUnknownFields() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> new CompactToolResultConverter(4, List.of("name", "humidity"), 600, meterRegistry))
+			.withMessageContaining("humidity");
+	}
+
+	@Test
+	void wrapsEveryWeatherTool() {
+		var converter = new CompactToolResultConverter(4, FIELDS, 600, meterRegistry);
+		var weatherService = new WeatherService(meterRegistry, "http://localhost:1", Duration.ofSeconds(1),
+				Duration.ofSeconds(1), Duration.ofSeconds(1), 10, 10,
+				new FanOut(1, 10, 1, Duration.ofSeconds(1), meterRegistry));
+
+		assertThat(converter.toolCallbacks(weatherService)).extracting(ToolCallback::getToolDefinition)
+			.extracting(definition -> definition.name())
+			.containsExactlyInAnyOrder("getWeatherForecast", "getWeatherForecasts", "getAlerts",
+					"getAlertsForLocation");
+	}
+
+	private static Forecast forecast(int periods) {
+		var list = new ArrayList<Forecast.Period>();
+		IntStream.rangeClosed(1, periods)
+			.forEach(i -> list.add(new Forecast.Period(i, "Period " + i, "2026-10-17T06:00:00-07:00",
+					"2026-10-17T18:00:00-07:00", i % 2 == 1, 70 + i, "F", null,
+					Map.of("unitCode", "wmoUnit:percent", "value", 20), "5 to 10 mph", "SW",
+					"https://api.weather.gov/icons/land/day/few?size=medium", "Sunny",
+					"Sunny, with a high near 75. Southwest wind 5 to 10 mph, with gusts as high as 20 mph. "
+							+ "Patchy fog before 9am, otherwise clearing through the afternoon.")));
+		return new Forecast(new Forecast.Props(list));
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.example.my_weather_server;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ForecastCacheTests {
+
+	private static final String FORECAST = """
+			{"properties":{"periods":[{"number":1,"name":"Tonight","temperature":52,"temperatureUnit":"F"}]}}
+			""";
+
+	private final MutableClock clock = new MutableClock();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+
+	private final AtomicReference<String> cacheControl = new AtomicReference<>("public, max-age=60");
+
+	private StubUpstream upstream;
+
+	private ForecastCache cache;
+
+	private String url;
+
+	@BeforeEach
+	void startUpstream() throws IOException {
+		upstream = new StubUpstream().route("/gridpoints/TOP/31,80/forecast", exchange -> {
+			String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+			ifNoneMatch.add(String.valueOf(validator));
+			exchange.getResponseHeaders().add("Cache-Control", cacheControl.get());
+			exchange.getResponseHeaders().add("ETag", "\"v1\"");
+			if ("\"v1\"".equals(validator)) {
+				StubUpstream.respond(exchange, 304, null);
+			}
+			else {
+				StubUpstream.respond(exchange, 200, FORECAST);
+			}
+		}).route("/gridpoints/TOP/0,0/forecast", exchange -> StubUpstream.respond(exchange, 500, null));
+		url = upstream.baseUrl() + "/gridpoints/TOP/31,80/forecast";
+		cache = new ForecastCache(RestClient.create(), 10, meterRegistry, clock);
+	}
+
+	@AfterEach
+	void stopUpstream() {
+		upstream.close();
+	}
+
+	@Test
+	void servesFreshForecastsWithoutARequest() {
+		var first = cache.get(url);
+		clock.advance(Duration.ofSeconds(59));
+		var second = cache.get(url);
+
+		assertThat(second).isSameAs(first);
+		assertThat(first.properties().periods()).hasSize(1);
+		assertThat(ifNoneMatch).containsExactly("null");
+		assertThat(count("fresh")).isEqualTo(1);
+	}
+
+	@Test
+	void revalidatesStaleForecastsWithTheETag() {
+		var first = cache.get(url);
+		clock.advance(Duration.ofSeconds(61));
+		var second = cache.get(url);
+		// The 304 renewed the lifetime
+		clock.advance(Duration.ofSeconds(30));
+		var third = cache.get(url);
+
+		assertThat(second).isSameAs(first);
+		assertThat(third).isSameAs(first);
+		assertThat(ifNoneMatch).containsExactly("null", "\"v1\"");
+		assertThat(count("fetched")).isEqualTo(1);
+		assertThat(count("revalidated")).isEqualTo(1);
+	}
+
+	@Test
+	void neverKeepsNoStoreResponses() {
+		cacheControl.set("no-store");
+
+		cache.get(url);
+		cache.get(url);
+
+		assertThat(ifNoneMatch).containsExactly("null", "null");
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void reportsUpstreamErrors() {
+		var failing = url.replace("31,80", "0,0");
+
+		assertThatThrownBy(() -> cache.get(failing)).isInstanceOf(RestClientResponseException.class);
+	}
+
+	@Test
+	void fallsBackToExpiresRelativeToDate() {
+		var headers = new HttpHeaders();
+		headers.setDate(1_000_000_000L);
+		headers.setExpires(1_000_120_000L);
+
+		assertThat(ForecastCache.freshUntil(headers, 5_000L)).isEqualTo(125_000L);
+
+		headers.setCacheControl("max-age=300");
+		headers.set("Age", "100");
+		assertThat(ForecastCache.freshUntil(headers, 5_000L)).isEqualTo(205_000L);
+	}
+
+	private double count(String result) {
+		return meterRegistry.get("weather.forecast.requests").tag("result", result).counter().count();
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-05T08:00:00Z").toEpochMilli());
+
+		void advance(Duration duration) {
+			millis.addAndGet(duration.toMillis());
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis.get());
+		}
+
+	}
+
+}
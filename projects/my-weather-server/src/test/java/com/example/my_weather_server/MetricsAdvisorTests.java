@@ -0,0 +1,151 @@
+package com.example.my_weather_server;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class MetricsAdvisorTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private MetricsAdvisor advisor;
+
+	@AfterEach
+	void stop() {
+		advisor.destroy();
+	}
+
+	@Test
+	void recordsLatencyTokensAndToolCalls() {
+		var chatClient = chatClient(new StubChatModel(false), 0);
+
+		String answer = chatClient.prompt().user("Weather in Seattle?").toolCallbacks(tool("getWeatherForecast"))
+			.call().content();
+
+		assertThat(answer).isEqualTo("Sunny");
+		assertThat(meterRegistry.get("weather.chat.latency").tags("mode", "call", "outcome", "success").timer().count())
+			.isEqualTo(1);
+		assertThat(meterRegistry.get("weather.chat.tokens").tag("type", "prompt").counter().count()).isEqualTo(120);
+		assertThat(meterRegistry.get("weather.chat.tokens").tag("type", "completion").counter().count()).isEqualTo(8);
+		assertThat(meterRegistry.get("weather.chat.tokens").tag("type", "total").counter().count()).isEqualTo(128);
+		assertThat(meterRegistry.get("weather.chat.tool-calls").tag("tool", "getWeatherForecast").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void recordsErrors() {
+		var chatClient = chatClient(new StubChatModel(true), 0);
+
+		assertThatIllegalStateException().isThrownBy(() -> chatClient.prompt().user("Weather?").call().content());
+
+		assertThat(meterRegistry.get("weather.chat.latency")
+			.tags("mode", "call", "outcome", "error", "exception", "IllegalStateException")
+			.timer()
+			.count()).isEqualTo(1);
+	}
+
+	@Test
+	void recordsTimeToFirstChunkAndStreamUsage() {
+		var chatClient = chatClient(new StubChatModel(false), 0);
+
+		List<String> chunks = chatClient.prompt().user("Weather?").stream().content().collectList().block();
+
+		assertThat(chunks).containsExactly("Sun", "ny");
+		assertThat(meterRegistry.get("weather.chat.first-chunk").timer().count()).isEqualTo(1);
+		var latency = meterRegistry.get("weather.chat.latency").tags("mode", "stream", "outcome", "success").timer();
+		assertThat(latency.count()).isEqualTo(1);
+		assertThat(latency.totalTime(TimeUnit.MILLISECONDS))
+			.isGreaterThanOrEqualTo(meterRegistry.get("weather.chat.first-chunk").timer()
+				.totalTime(TimeUnit.MILLISECONDS));
+		assertThat(meterRegistry.get("weather.chat.tokens").tag("type", "total").counter().count()).isEqualTo(128);
+	}
+
+	@Test
+	void writesSampledPayloadsInTheBackground() throws InterruptedException {
+		var chatClient = chatClient(new StubChatModel(false), 1.0);
+
+		chatClient.prompt().user("Weather?").call().content();
+		chatClient.prompt().user("Weather?").stream().content().blockLast();
+
+		var written = meterRegistry.get("weather.chat.payload-log").tag("result", "written").counter();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (written.count() < 2 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(written.count()).isEqualTo(2);
+	}
+
+	private ChatClient chatClient(ChatModel chatModel, double sampleRate) {
+		advisor = new MetricsAdvisor(meterRegistry, sampleRate, 16);
+		return ChatClient.builder(chatModel).defaultAdvisors(advisor).build();
+	}
+
+	private static ToolCallback tool(String name) {
+		return new ToolCallback() {
+
+			@Override
+			public ToolDefinition getToolDefinition() {
+				return ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+			}
+
+			@Override
+			public String call(String toolInput) {
+				return "{}";
+			}
+		};
+	}
+
+	/**
+	 * Answers "Sunny", after calling the first tool it was given, like a model with internal
+	 * tool execution.
+	 */
+	private record StubChatModel(boolean failing) implements ChatModel {
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			if (failing) {
+				throw new IllegalStateException("model unavailable");
+			}
+			if (prompt.getOptions() instanceof ToolCallingChatOptions options && !options.getToolCallbacks().isEmpty()) {
+				options.getToolCallbacks().get(0).call("{}");
+			}
+			return response("Sunny", new DefaultUsage(120, 8));
+		}
+
+		@Override
+		public Flux<ChatResponse> stream(Prompt prompt) {
+			return Flux.just(response("Sun", null), response("ny", new DefaultUsage(120, 8)));
+		}
+
+		@Override
+		public ChatOptions getDefaultOptions() {
+			return ToolCallingChatOptions.builder().build();
+		}
+
+		private static ChatResponse response(String text, DefaultUsage usage) {
+			var metadata = usage == null ? new ChatResponseMetadata() : ChatResponseMetadata.builder().usage(usage).build();
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.example.my_weather_server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for api.weather.gov on a free port. Requests are handled on a cached pool, so
+ * handlers that sleep to simulate latency do not hold up each other.
+ */
+final class StubUpstream implements AutoCloseable {
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	StubUpstream() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	String baseUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	StubUpstream route(String path, HttpHandler handler) {
+		server.createContext(path, handler);
+		return this;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Answers with a GeoJSON body after {@code delay}; an interrupted delay answers at once.
+	 */
+	static void respond(HttpExchange exchange, Duration delay, int status, String body) throws IOException {
+		try {
+			Thread.sleep(delay.toMillis());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		respond(exchange, status, body);
+	}
+
+	/**
+	 * Answers with a GeoJSON body, or with no body when {@code body} is {@code null}. Headers set
+	 * on the exchange before are kept.
+	 */
+	static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+		}
+		else {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/geo+json");
+			exchange.sendResponseHeaders(status, bytes.length);
+			exchange.getResponseBody().write(bytes);
+		}
+		exchange.close();
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.example.my_weather_server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Runs batch forecasts against a local stub of api.weather.gov where each of the two hops of a
+ * forecast takes {@link #UPSTREAM_LATENCY}. The stub has no point at latitude 0 and takes
+ * {@link #SLOW_POINT_LATENCY} for latitude 1. Wall-clock times are logged, not asserted, except
+ * that a batch must end well before its slowest call.
+ */
+class WeatherServiceBatchTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(WeatherServiceBatchTests.class);
+
+	private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(100);
+
+	private static final Duration SLOW_POINT_LATENCY = Duration.ofSeconds(4);
+
+	private static final int MAX_CONCURRENCY = 8;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private StubUpstream upstream;
+
+	private String baseUrl;
+
+	private FanOut fanOut;
+
+	private WeatherService weatherService;
+
+	@BeforeEach
+	void startUpstream() throws IOException {
+		upstream = new StubUpstream();
+		baseUrl = upstream.baseUrl();
+		upstream.route("/points/", exchange -> {
+			String point = exchange.getRequestURI().getPath().substring("/points/".length());
+			if (point.startsWith("0,")) {
+				respond(exchange, UPSTREAM_LATENCY, 404, "{\"title\":\"Data Unavailable For Requested Point\"}");
+			}
+			else {
+				respond(exchange, point.startsWith("1,") ? SLOW_POINT_LATENCY : UPSTREAM_LATENCY, 200, """
+						{"properties":{"forecast":"%s/gridpoints/TOP/%s/forecast"}}
+						""".formatted(baseUrl, point));
+			}
+		});
+		upstream.route("/gridpoints/", exchange -> respond(exchange, UPSTREAM_LATENCY, 200, """
+				{"properties":{"periods":[{"number":1,"name":"Tonight","temperature":52,"temperatureUnit":"F"}]}}
+				"""));
+
+		weatherService = weatherService(Duration.ofSeconds(20));
+	}
+
+	@AfterEach
+	void stopUpstream() {
+		fanOut.destroy();
+		upstream.close();
+	}
+
+	@Test
+	void fetchesLocationsConcurrentlyUpToTheCap() {
+		var locations = IntStream.range(0, 40).mapToObj(i -> new WeatherService.Location(30 + i * 0.25, -100)).toList();
+
+		long start = System.nanoTime();
+		var result = weatherService.getWeatherForecasts(new WeatherService.ForecastsRequest(locations));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		long sequential = locations.size() * 2 * UPSTREAM_LATENCY.toMillis();
+		logger.info("{} forecasts in {}ms, at most {} upstream requests in flight; sequentially about {}ms",
+				locations.size(), elapsed, maxInFlight.get(), sequential);
+
+		assertThat(result.forecasts()).hasSize(locations.size());
+		assertThat(result.forecasts()).allSatisfy(forecast -> {
+			assertThat(forecast.error()).isNull();
+			assertThat(forecast.forecast().properties().periods()).hasSize(1);
+		});
+		assertThat(result.forecasts()).extracting(WeatherService.LocationForecast::location).isEqualTo(locations);
+		assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(MAX_CONCURRENCY);
+	}
+
+	@Test
+	void failedLocationsCarryTheirErrorAlongsideTheOthers() {
+		var locations = List.of(new WeatherService.Location(40, -100), new WeatherService.Location(0, 0),
+				new WeatherService.Location(41, -100));
+
+		var result = weatherService.getWeatherForecasts(new WeatherService.ForecastsRequest(locations));
+
+		assertThat(result.forecasts().get(0).forecast()).isNotNull();
+		assertThat(result.forecasts().get(1).forecast()).isNull();
+		assertThat(result.forecasts().get(1).error()).contains("404");
+		assertThat(result.forecasts().get(2).forecast()).isNotNull();
+		assertThat(meterRegistry.get("weather.fanout.calls").tag("outcome", "error").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void returnsWhatIsDoneAtTheDeadline() {
+		var hurried = weatherService(Duration.ofMillis(800));
+		var locations = List.of(new WeatherService.Location(1, -100), new WeatherService.Location(40, -100),
+				new WeatherService.Location(41, -100));
+
+		long start = System.nanoTime();
+		var result = hurried.getWeatherForecasts(new WeatherService.ForecastsRequest(locations));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// The 800ms deadline, not the slow point, ends the batch
+		assertThat(elapsed).isLessThan(SLOW_POINT_LATENCY.toMillis());
+		assertThat(result.forecasts().get(0).error()).contains("deadline");
+		assertThat(result.forecasts().get(1).forecast()).isNotNull();
+		assertThat(result.forecasts().get(2).forecast()).isNotNull();
+	}
+
+	@Test
+	void rejectsOversizedBatches() {
+		var locations = IntStream.range(0, 51).mapToObj(i -> new WeatherService.Location(30 + i, -100)).toList();
+
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> weatherService.getWeatherForecasts(new WeatherService.ForecastsRequest(locations)))
+			.withMessageContaining("At most 50");
+	}
+
+	private WeatherService weatherService(Duration deadline) {
+		if (fanOut != null) {
+			fanOut.destroy();
+		}
+		fanOut = new FanOut(16, 50, MAX_CONCURRENCY, deadline, meterRegistry);
+		return new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				Duration.ofSeconds(5), 100, 100, fanOut);
+	}
+
+	private void respond(HttpExchange exchange, Duration delay, int status, String body) throws IOException {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			exchange.getResponseHeaders().add("Cache-Control", "no-store");
+			StubUpstream.respond(exchange, delay, status, body);
+		}
+		finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+}
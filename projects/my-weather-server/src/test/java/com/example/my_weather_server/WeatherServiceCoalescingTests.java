@@ -0,0 +1,213 @@
+package com.example.my_weather_server;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link WeatherService} against a local stub of api.weather.gov that answers after a fixed
+ * delay and counts the requests it receives. Forecasts are served with {@code no-store}, so only
+ * coalescing keeps concurrent callers from reaching the stub.
+ */
+class WeatherServiceCoalescingTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(WeatherServiceCoalescingTests.class);
+
+	private static final int CALLERS = 200;
+
+	private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(150);
+
+	private final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+	private StubUpstream upstream;
+
+	private String baseUrl;
+
+	private WeatherService weatherService;
+
+	@BeforeEach
+	void startUpstream() throws IOException {
+		upstream = new StubUpstream();
+		baseUrl = upstream.baseUrl();
+		upstream.route("/points/", exchange -> {
+			String point = exchange.getRequestURI().getPath().substring("/points/".length());
+			respond(exchange, "points", UPSTREAM_LATENCY, 200, """
+					{"properties":{"forecast":"%s/gridpoints/TOP/%s/forecast"}}
+					""".formatted(baseUrl, point));
+		});
+		upstream.route("/gridpoints/", exchange -> respond(exchange, "forecast", UPSTREAM_LATENCY, 200, """
+				{"properties":{"periods":[{"number":1,"name":"Tonight","temperature":52,"temperatureUnit":"F"}]}}
+				"""));
+		upstream.route("/alerts/active/area/", exchange -> {
+			String state = exchange.getRequestURI().getPath().substring("/alerts/active/area/".length());
+			switch (state) {
+				case "TX" -> respond(exchange, "alerts", UPSTREAM_LATENCY, 503, "{}");
+				case "FL" -> respond(exchange, "alerts", Duration.ofMillis(1_000), 200, "{\"features\":[]}");
+				default -> respond(exchange, "alerts", UPSTREAM_LATENCY, 200, """
+						{"features":[{"properties":{"event":"Heat Advisory","areaDesc":"%s","severity":"Moderate"}}]}
+						""".formatted(state));
+			}
+		});
+
+		weatherService = weatherService(Duration.ofSeconds(2));
+	}
+
+	@AfterEach
+	void stopUpstream() {
+		callers.shutdownNow();
+		upstream.close();
+	}
+
+	@Test
+	void concurrentIdenticalLookupsShareOneUpstreamRequest() throws Exception {
+		var cities = List.of(new WeatherService.Location(47.6062, -122.3321),
+				new WeatherService.Location(40.7128, -74.0060), new WeatherService.Location(37.7749, -122.4194),
+				new WeatherService.Location(41.8781, -87.6298));
+		var states = List.of("CA", "NY", "WA", "OR");
+
+		long start = System.nanoTime();
+		var results = runConcurrently(i -> i % 2 == 0
+				? weatherService.getWeatherForecastByLocation(cities.get(i / 2 % cities.size()))
+				: weatherService.getAlerts(new WeatherService.AlertRequest(states.get(i / 2 % states.size()))));
+		long elapsed = System.nanoTime() - start;
+
+		int upstream = calls("points") + calls("forecast") + calls("alerts");
+		logger.info("{} concurrent lookups in {}ms: {} upstream requests (points={}, forecast={}, alerts={}),"
+				+ " {} without coalescing", CALLERS, TimeUnit.NANOSECONDS.toMillis(elapsed), upstream,
+				calls("points"), calls("forecast"), calls("alerts"), CALLERS / 2 * 3);
+
+		assertThat(results).allSatisfy(result -> assertThat(result).isNotNull());
+		// One flight per city (points + forecast) and per state, plus slack for callers that start late
+		assertThat(calls("points")).isLessThanOrEqualTo(cities.size() * 2);
+		assertThat(calls("forecast")).isLessThanOrEqualTo(cities.size() * 2);
+		assertThat(calls("alerts")).isLessThanOrEqualTo(states.size() * 2);
+	}
+
+	@Test
+	void everyWaitingCallerSeesTheUpstreamError() throws Exception {
+		var failures = new AtomicInteger();
+		runConcurrently(i -> {
+			try {
+				return weatherService.getAlerts(new WeatherService.AlertRequest("tx"));
+			}
+			catch (HttpServerErrorException.ServiceUnavailable e) {
+				failures.incrementAndGet();
+				return null;
+			}
+		});
+
+		assertThat(failures).hasValue(CALLERS);
+		assertThat(calls("alerts")).isLessThanOrEqualTo(2);
+
+		// The failure is not remembered: the next lookup asks again
+		int before = calls("alerts");
+		runConcurrently(1, i -> {
+			try {
+				return weatherService.getAlerts(new WeatherService.AlertRequest("TX"));
+			}
+			catch (HttpServerErrorException.ServiceUnavailable e) {
+				return null;
+			}
+		});
+		assertThat(calls("alerts")).isEqualTo(before + 1);
+	}
+
+	@Test
+	void waitingCallersGiveUpAfterMaxWaitWhileTheFirstCallCompletes() throws Exception {
+		var impatient = weatherService(Duration.ofMillis(200));
+		var timedOut = new AtomicInteger();
+		var results = runConcurrently(20, i -> {
+			try {
+				return impatient.getAlerts(new WeatherService.AlertRequest("FL"));
+			}
+			catch (RestClientException e) {
+				assertThat(e.getMessage()).contains("Timed out");
+				timedOut.incrementAndGet();
+				return null;
+			}
+		});
+
+		assertThat(calls("alerts")).isEqualTo(1);
+		assertThat(timedOut).hasValue(19);
+		assertThat(results.stream().filter(result -> result != null)).hasSize(1);
+	}
+
+	private WeatherService weatherService(Duration maxCoalescingWait) {
+		var meterRegistry = new SimpleMeterRegistry();
+		return new WeatherService(meterRegistry, baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(5),
+				maxCoalescingWait, 100, 100, new FanOut(8, 50, 8, Duration.ofSeconds(20), meterRegistry));
+	}
+
+	private int calls(String kind) {
+		return upstreamCalls.getOrDefault(kind, new AtomicInteger()).get();
+	}
+
+	private void respond(HttpExchange exchange, String kind, Duration delay, int status, String body)
+			throws IOException {
+		upstreamCalls.computeIfAbsent(kind, k -> new AtomicInteger()).incrementAndGet();
+		exchange.getResponseHeaders().add("Cache-Control", "no-store");
+		StubUpstream.respond(exchange, delay, status, body);
+	}
+
+	private List<Object> runConcurrently(Lookup lookup) throws Exception {
+		return runConcurrently(CALLERS, lookup);
+	}
+
+	private List<Object> runConcurrently(int count, Lookup lookup) throws Exception {
+		var ready = new CountDownLatch(1);
+		var futures = new ArrayList<Future<Object>>();
+		for (int i = 0; i < count; i++) {
+			int caller = i;
+			futures.add(callers.submit((Callable<Object>) () -> {
+				ready.await();
+				return lookup.call(caller);
+			}));
+		}
+		ready.countDown();
+		var results = new ArrayList<Object>();
+		for (var future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (ExecutionException e) {
+				throw new AssertionError("Lookup failed", e.getCause());
+			}
+		}
+		return results;
+	}
+
+	@FunctionalInterface
+	private interface Lookup {
+
+		Object call(int caller);
+
+	}
+
+}